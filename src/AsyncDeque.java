@@ -0,0 +1,328 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Asynchronous facade over a SimpleDeque.
+ *
+ * Pops return a CompletableFuture which completes as soon as an element is
+ * available, and pushes return one which completes once the element is in the
+ * deque, so callers never poll isEmpty() or isFull(). A pop on an empty deque
+ * waits in line and the next pushed element is handed straight to the oldest
+ * waiting pop. A push to a full deque waits in line and is let in by the next
+ * pop, which is how producers see backpressure.
+ *
+ * Futures are completed on the thread whose push or pop satisfied them, while
+ * the facade's lock is held; use the *Async stages of CompletableFuture for
+ * heavy follow-up work. The data deque must not be used externally once the
+ * facade is created. Null elements are not permitted.
+ *
+ * Cancelled (or otherwise completed) waiters are skipped when they reach the
+ * front of the line, and are also purged whenever a line has doubled in
+ * length since its last purge, so a stream of timed-out pops on an idle deque
+ * does not keep their futures reachable.
+ * Memory Complexity: O(live waiting pushes and pops) + O(1)
+ * @param <T> The type of array elements.
+ */
+public class AsyncDeque<T> {
+    private static final int MIN_PURGE_AT = 16;
+
+    private final SimpleDeque<T> deque;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Pops waiting for an element; only non-empty while the deque is empty
+    private final SimpleArrayDeque<CompletableFuture<T>> waitingPops = new SimpleArrayDeque<>();
+    // Pushes waiting for room; only non-empty while the deque is full
+    private final SimpleArrayDeque<PendingPush<T>> waitingPushes = new SimpleArrayDeque<>();
+    // Lengths at which each line is next swept for completed waiters
+    private int popPurgeAt = MIN_PURGE_AT;
+    private int pushPurgeAt = MIN_PURGE_AT;
+
+    /**
+     * Constructs a new asynchronous facade storing elements in the given deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param data a deque to store elements in.
+     */
+    public AsyncDeque(SimpleDeque<T> data) {
+        this.deque = data;
+    }
+
+    /**
+     * Returns the number of elements currently stored in the deque, not
+     * counting waiting pushes.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return Number of elements.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return deque.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pushes an element to the left of the deque once there is room.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @return a future which completes once the element has been pushed (or handed to a waiting pop)
+     * @throws NullPointerException if e is null
+     */
+    public CompletableFuture<Void> pushLeftAsync(T e) {
+        return push(e, false);
+    }
+
+    /**
+     * Pushes an element to the right of the deque once there is room.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @return a future which completes once the element has been pushed (or handed to a waiting pop)
+     * @throws NullPointerException if e is null
+     */
+    public CompletableFuture<Void> pushRightAsync(T e) {
+        return push(e, true);
+    }
+
+    /**
+     * Removes the element at the left of the deque once there is one.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return a future of the leftmost element. Cancelling it gives up its place in line.
+     */
+    public CompletableFuture<T> popLeftAsync() {
+        return pop(true);
+    }
+
+    /**
+     * Removes the element at the right of the deque once there is one.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return a future of the rightmost element. Cancelling it gives up its place in line.
+     */
+    public CompletableFuture<T> popRightAsync() {
+        return pop(false);
+    }
+
+    /**
+     * Returns a publisher which streams elements popped from the left of the
+     * deque to each subscriber, as fast as the subscriber requests them.
+     * Signals are delivered on the given executor, never while the facade's
+     * lock is held. Subscribers compete for elements, and the stream never
+     * completes on its own.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param executor the executor used to deliver elements
+     * @return a publisher of popped elements
+     * @requires executor != null
+     */
+    public Flow.Publisher<T> publisher(Executor executor) {
+        return subscriber -> {
+            if (subscriber == null) {
+                throw new NullPointerException();
+            }
+            subscriber.onSubscribe(new DequeSubscription(subscriber, executor));
+        };
+    }
+
+    private CompletableFuture<Void> push(T e, boolean right) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        lock.lock();
+        try {
+            // Waiting pops come first; cancelled ones are skipped
+            while (!waitingPops.isEmpty()) {
+                if (waitingPops.popLeft().complete(e)) {
+                    return CompletableFuture.completedFuture(null);
+                }
+            }
+            if (waitingPushes.isEmpty() && !deque.isFull()) {
+                store(e, right);
+                return CompletableFuture.completedFuture(null);
+            }
+            if (waitingPushes.size() >= pushPurgeAt) {
+                pushPurgeAt = purge(waitingPushes, pending -> pending.future.isDone());
+            }
+            PendingPush<T> pending = new PendingPush<>(e, right);
+            waitingPushes.pushRight(pending);
+            return pending.future;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private CompletableFuture<T> pop(boolean left) {
+        lock.lock();
+        try {
+            if (deque.isEmpty()) {
+                if (waitingPops.size() >= popPurgeAt) {
+                    popPurgeAt = purge(waitingPops, CompletableFuture::isDone);
+                }
+                CompletableFuture<T> future = new CompletableFuture<>();
+                waitingPops.pushRight(future);
+                return future;
+            }
+            T element = left ? deque.popLeft() : deque.popRight();
+            admitWaitingPush();
+            return CompletableFuture.completedFuture(element);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the oldest waiting push that is still pending into the space
+     * freed by a pop. The element is stored before its future completes, so
+     * the future's dependents see it in the deque; if completing fails
+     * because the push was cancelled or timed out in the meantime, the
+     * element is taken back out of the end it went in at. Must hold the lock.
+     */
+    private void admitWaitingPush() {
+        while (!waitingPushes.isEmpty()) {
+            PendingPush<T> pending = waitingPushes.popLeft();
+            if (pending.future.isDone()) {
+                continue;
+            }
+            store(pending.element, pending.right);
+            if (pending.future.complete(null)) {
+                return;
+            }
+            if (pending.right) {
+                deque.popRight();
+            } else {
+                deque.popLeft();
+            }
+        }
+    }
+
+    /**
+     * Drops the waiters matching done from a line, keeping the others in
+     * order. Sweeping only once the line has doubled since the last sweep
+     * makes it O(1) amortised per waiter. Must hold the lock.
+     * @return the line length at which to sweep next
+     */
+    private static <W> int purge(SimpleArrayDeque<W> line, Predicate<W> done) {
+        for (int n = line.size(); n > 0; n--) {
+            W waiter = line.popLeft();
+            if (!done.test(waiter)) {
+                line.pushRight(waiter);
+            }
+        }
+        return Math.max(MIN_PURGE_AT, 2 * line.size());
+    }
+
+    private void store(T e, boolean right) {
+        if (right) {
+            deque.pushRight(e);
+        } else {
+            deque.pushLeft(e);
+        }
+    }
+
+    private static class PendingPush<T> {
+        final T element;
+        final boolean right;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingPush(T element, boolean right) {
+            this.element = element;
+            this.right = right;
+        }
+    }
+
+    /**
+     * Pulls one element at a time from the left of the deque while the
+     * subscriber has outstanding demand.
+     */
+    private class DequeSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Executor executor;
+        private final AtomicLong demand = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile CompletableFuture<T> waiting;
+
+        private DequeSubscription(Flow.Subscriber<? super T> subscriber, Executor executor) {
+            this.subscriber = subscriber;
+            this.executor = executor;
+        }
+
+        @Override
+        public void request(long n) {
+            if (cancelled) {
+                return;
+            }
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException());
+                return;
+            }
+            long previous = demand.getAndAccumulate(n,
+                    (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+            // Only the request which raises demand from zero starts pulling
+            if (previous == 0) {
+                schedule(this::pull);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            CompletableFuture<T> future = waiting;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        private void pull() {
+            while (!cancelled) {
+                CompletableFuture<T> future = popLeftAsync();
+                if (!future.isDone()) {
+                    waiting = future;
+                    if (cancelled) {
+                        future.cancel(false);
+                    }
+                    future.whenCompleteAsync((element, ex) -> {
+                        if (ex == null && deliver(element)) {
+                            pull();
+                        }
+                    }, executor);
+                    return;
+                }
+                if (!deliver(future.join())) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Sends an element to the subscriber, or puts it back if the
+         * subscription was cancelled first.
+         * @return whether there is demand for more
+         */
+        private boolean deliver(T element) {
+            if (cancelled) {
+                pushLeftAsync(element);
+                return false;
+            }
+            subscriber.onNext(element);
+            return demand.get() == Long.MAX_VALUE || demand.decrementAndGet() > 0;
+        }
+
+        private void schedule(Runnable task) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                cancel();
+                subscriber.onError(e);
+            }
+        }
+    }
+}
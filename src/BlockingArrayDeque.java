@@ -0,0 +1,608 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe bounded Circular Deque Array whose producers and consumers can
+ * wait for room or for elements instead of retrying.
+ *
+ * Elements are stored in a fixed-capacity SimpleArrayDeque guarded by a
+ * ReentrantLock. Waiting threads block on its Conditions, which park the
+ * thread rather than holding a monitor, so virtual threads unmount while they
+ * wait. A batch push or drain signals the other side once per batch; a woken
+ * thread passes the signal on while there is still work left, and so does a
+ * waiter which times out or is interrupted, so every waiter eventually wakes.
+ * While a batch push is waiting for room, pops wake every waiting producer,
+ * since the one a single signal picks may still lack room while another could
+ * go ahead.
+ *
+ * The drainTo methods push into dest while holding this deque's lock, so dest
+ * must not be a deque which may at the same time be draining into this one
+ * (such as two BlockingArrayDeques draining into each other): each would hold
+ * its own lock while waiting for the other's, and both would deadlock.
+ *
+ * The SimpleDeque operations keep their non-blocking behaviour and throw when
+ * the deque is full or empty. Null elements are not permitted, since the timed
+ * pops return null on timeout.
+ * Memory Complexity: O(capacity) + O(1) = O(capacity)
+ * @param <T> The type of array elements.
+ */
+public class BlockingArrayDeque<T> implements SimpleDeque<T> {
+    private final SimpleArrayDeque<T> deque;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    // Producers waiting in awaitRoom for more than one slot
+    private int batchWaiters;
+
+    /**
+     * Constructs a new blocking deque with limited capacity.
+     * Time complexity: O(capacity)
+     * Memory complexity: O(capacity)
+     * @param capacity the capacity
+     * @throws IllegalArgumentException if capacity <= 0
+     */
+    public BlockingArrayDeque(int capacity) throws IllegalArgumentException {
+        this.deque = new SimpleArrayDeque<>(capacity);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns whether the deque is empty.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the deque is empty, otherwise false.
+     */
+    @Override
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return deque.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether the deque is full.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the deque is full, otherwise false.
+     */
+    @Override
+    public boolean isFull() {
+        lock.lock();
+        try {
+            return deque.isFull();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of elements currently stored in the deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return Number of elements.
+     */
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return deque.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pushes an element to the left of the deque without waiting.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @throws NullPointerException if e is null
+     * @throws RuntimeException if the deque is already full
+     */
+    @Override
+    public void pushLeft(T e) throws RuntimeException {
+        checkElement(e);
+        lock.lock();
+        try {
+            deque.pushLeft(e);
+            signalAfterPush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pushes an element to the right of the deque without waiting.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @throws NullPointerException if e is null
+     * @throws RuntimeException if the deque is already full
+     */
+    @Override
+    public void pushRight(T e) throws RuntimeException {
+        checkElement(e);
+        lock.lock();
+        try {
+            deque.pushRight(e);
+            signalAfterPush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pushes an element to the left of the deque, waiting up to the given
+     * time for room.
+     * Time complexity: O(1) plus waiting
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @param timeout how long to wait, in units of unit
+     * @param unit the unit of timeout
+     * @return true if the element was pushed, false if the wait timed out
+     * @throws NullPointerException if e is null
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean pushLeft(T e, long timeout, TimeUnit unit) throws InterruptedException {
+        checkElement(e);
+        lock.lockInterruptibly();
+        try {
+            if (!awaitRoom(1, unit.toNanos(timeout))) {
+                return false;
+            }
+            deque.pushLeft(e);
+            signalAfterPush();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pushes an element to the right of the deque, waiting up to the given
+     * time for room.
+     * Time complexity: O(1) plus waiting
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @param timeout how long to wait, in units of unit
+     * @param unit the unit of timeout
+     * @return true if the element was pushed, false if the wait timed out
+     * @throws NullPointerException if e is null
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean pushRight(T e, long timeout, TimeUnit unit) throws InterruptedException {
+        checkElement(e);
+        lock.lockInterruptibly();
+        try {
+            if (!awaitRoom(1, unit.toNanos(timeout))) {
+                return false;
+            }
+            deque.pushRight(e);
+            signalAfterPush();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pushes every element of an array to the right of the deque as one batch,
+     * waiting up to the given time for room for all of them. Waiting consumers
+     * are signalled once for the whole batch.
+     * Time complexity: O(elements.length) plus waiting
+     * Memory complexity: O(1)
+     * @param elements Elements to push
+     * @param timeout how long to wait, in units of unit
+     * @param unit the unit of timeout
+     * @return true if the elements were pushed, false if the wait timed out
+     * @throws NullPointerException if any element is null
+     * @throws IllegalArgumentException if there are more elements than the capacity
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean pushAllRight(T[] elements, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        for (T element : elements) {
+            checkElement(element);
+        }
+        lock.lockInterruptibly();
+        try {
+            if (!awaitRoom(elements.length, unit.toNanos(timeout))) {
+                return false;
+            }
+            deque.pushAllRight(elements);
+            signalAfterPush();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pushes every element of an array to the left of the deque as one batch
+     * without waiting, signalling waiting consumers once.
+     * Time complexity: O(elements.length)
+     * Memory complexity: O(1)
+     * @param elements Elements to push
+     * @throws NullPointerException if any element is null
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    @Override
+    public void pushAllLeft(T[] elements) throws RuntimeException {
+        for (T element : elements) {
+            checkElement(element);
+        }
+        lock.lock();
+        try {
+            deque.pushAllLeft(elements);
+            signalAfterPush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pushes every element of an array to the right of the deque as one batch
+     * without waiting, signalling waiting consumers once.
+     * Time complexity: O(elements.length)
+     * Memory complexity: O(1)
+     * @param elements Elements to push
+     * @throws NullPointerException if any element is null
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    @Override
+    public void pushAllRight(T[] elements) throws RuntimeException {
+        for (T element : elements) {
+            checkElement(element);
+        }
+        lock.lock();
+        try {
+            deque.pushAllRight(elements);
+            signalAfterPush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the element at the left of the deque, but does not remove it.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the leftmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T peekLeft() throws NoSuchElementException {
+        lock.lock();
+        try {
+            return deque.peekLeft();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the element at the right of the deque, but does not remove it.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the rightmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T peekRight() throws NoSuchElementException {
+        lock.lock();
+        try {
+            return deque.peekRight();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the element at the left of the deque without waiting.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the leftmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T popLeft() throws NoSuchElementException {
+        lock.lock();
+        try {
+            T element = deque.popLeft();
+            signalAfterPop();
+            return element;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the element at the right of the deque without waiting.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the rightmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T popRight() throws NoSuchElementException {
+        lock.lock();
+        try {
+            T element = deque.popRight();
+            signalAfterPop();
+            return element;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the element at the left of the deque, waiting up to
+     * the given time for one to arrive.
+     * Time complexity: O(1) plus waiting
+     * Memory complexity: O(1)
+     * @param timeout how long to wait, in units of unit
+     * @param unit the unit of timeout
+     * @returns the leftmost element, or null if the wait timed out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public T popLeft(long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            if (!awaitElement(unit.toNanos(timeout))) {
+                return null;
+            }
+            T element = deque.popLeft();
+            signalAfterPop();
+            return element;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the element at the right of the deque, waiting up to
+     * the given time for one to arrive.
+     * Time complexity: O(1) plus waiting
+     * Memory complexity: O(1)
+     * @param timeout how long to wait, in units of unit
+     * @param unit the unit of timeout
+     * @returns the rightmost element, or null if the wait timed out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public T popRight(long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            if (!awaitElement(unit.toNanos(timeout))) {
+                return null;
+            }
+            T element = deque.popRight();
+            signalAfterPop();
+            return element;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes up to n elements from the left of the deque into dest without
+     * waiting, signalling waiting producers once.
+     * Time complexity: O(n)
+     * Memory complexity: O(1)
+     * @param n Maximum number of elements to remove
+     * @param dest Array to store the removed elements in
+     * @returns the number of elements removed
+     * @throws IllegalArgumentException if n < 0 or n > dest.length
+     */
+    @Override
+    public int popLeft(int n, T[] dest) throws IllegalArgumentException {
+        lock.lock();
+        try {
+            int count = deque.popLeft(n, dest);
+            if (count > 0) {
+                signalAfterPop();
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves every element from the left of this deque to the right of dest
+     * (until dest is full) without waiting, signalling waiting producers once.
+     * dest is filled while this deque's lock is held, so it must not be
+     * draining into this deque at the same time.
+     * Time complexity: O(number of elements moved)
+     * Memory complexity: O(1)
+     * @param dest Deque to move the elements to
+     * @returns the number of elements moved
+     * @throws IllegalArgumentException if dest is this deque
+     */
+    @Override
+    public int drainTo(SimpleDeque<? super T> dest) throws IllegalArgumentException {
+        if (dest == this) {
+            throw new IllegalArgumentException();
+        }
+        lock.lock();
+        try {
+            int count = deque.drainTo(dest);
+            if (count > 0) {
+                signalAfterPop();
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits up to the given time for at least one element, then moves up to
+     * maxElements elements from the left of this deque to the right of dest in
+     * one batch, signalling waiting producers once. dest is filled while this
+     * deque's lock is held, so it must not be draining into this deque at the
+     * same time.
+     * Time complexity: O(number of elements moved) plus waiting
+     * Memory complexity: O(1)
+     * @param dest Deque to move the elements to
+     * @param maxElements Maximum number of elements to move
+     * @param timeout how long to wait, in units of unit
+     * @param unit the unit of timeout
+     * @returns the number of elements moved, 0 if the wait timed out
+     * @throws IllegalArgumentException if dest is this deque or maxElements < 0
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public int drainTo(SimpleDeque<? super T> dest, int maxElements, long timeout,
+                       TimeUnit unit) throws InterruptedException {
+        if (dest == this || maxElements < 0) {
+            throw new IllegalArgumentException();
+        }
+        lock.lockInterruptibly();
+        try {
+            if (maxElements == 0 || !awaitElement(unit.toNanos(timeout))) {
+                return 0;
+            }
+            int count = 0;
+            while (count < maxElements && !deque.isEmpty() && !dest.isFull()) {
+                dest.pushRight(deque.popLeft());
+                count++;
+            }
+            if (count > 0) {
+                signalAfterPop();
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the deque in left to right sequence.
+     * Time complexity: O(size) to take the snapshot, then O(1) per element
+     * Memory complexity: O(size)
+     * @returns an iterator over the elements in in order from leftmost to rightmost.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return snapshot().iterator();
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the deque in right to left sequence.
+     * Time complexity: O(size) to take the snapshot, then O(1) per element
+     * Memory complexity: O(size)
+     * @returns an iterator over the elements in in order from rightmost to leftmost.
+     */
+    @Override
+    public Iterator<T> reverseIterator() {
+        return snapshot().reverseIterator();
+    }
+
+    private SimpleArrayDeque<T> snapshot() {
+        lock.lock();
+        try {
+            return new SimpleArrayDeque<>(deque);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until there is room for n elements. Must hold the lock.
+     * @return false if the time ran out first
+     * @throws IllegalArgumentException if n is larger than the capacity
+     */
+    private boolean awaitRoom(int n, long nanos) throws InterruptedException {
+        if (n > capacity) {
+            throw new IllegalArgumentException();
+        }
+        if (n > 1) {
+            batchWaiters++;
+        }
+        try {
+            while (deque.size() + n > capacity) {
+                if (nanos <= 0) {
+                    passOn(notFull, !deque.isFull());
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            passOn(notFull, !deque.isFull());
+            throw e;
+        } finally {
+            if (n > 1) {
+                batchWaiters--;
+            }
+        }
+    }
+
+    /**
+     * Waits until there is at least one element. Must hold the lock.
+     * @return false if the time ran out first
+     */
+    private boolean awaitElement(long nanos) throws InterruptedException {
+        try {
+            while (deque.isEmpty()) {
+                if (nanos <= 0) {
+                    passOn(notEmpty, !deque.isEmpty());
+                    return false;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            passOn(notEmpty, !deque.isEmpty());
+            throw e;
+        }
+    }
+
+    /**
+     * Hands a signal this thread may have taken on to another waiter when the
+     * thread gives up waiting although the condition it waited for holds.
+     * A spare signal only costs the woken thread a recheck.
+     */
+    private static void passOn(Condition condition, boolean holds) {
+        if (holds) {
+            condition.signal();
+        }
+    }
+
+    /**
+     * Wakes one consumer, and one more producer if there is still room.
+     */
+    private void signalAfterPush() {
+        notEmpty.signal();
+        if (!deque.isFull()) {
+            notFull.signal();
+        }
+    }
+
+    /**
+     * Wakes one producer (or all of them while a batch push is waiting), and
+     * one more consumer if elements remain.
+     */
+    private void signalAfterPop() {
+        if (batchWaiters > 0) {
+            notFull.signalAll();
+        } else {
+            notFull.signal();
+        }
+        if (!deque.isEmpty()) {
+            notEmpty.signal();
+        }
+    }
+
+    private static void checkElement(Object e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+    }
+}
@@ -0,0 +1,401 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Thread-safe bounded Circular Deque Array built on CAS rather than locks.
+ * Any number of threads may push and pop at either end concurrently, and the
+ * deque is lock-free: a thread stalled part way through an operation never
+ * stops other threads from completing theirs.
+ *
+ * Every operation is numbered by a sequence number and takes effect with one
+ * CAS on the state reference, which holds the left and right positions and
+ * the single slot write the operation still owes: the element for a push, or
+ * a clear for a pop. Each slot holds a Cell stamped with the sequence number
+ * of the operation that last wrote it. Before starting its own operation,
+ * every thread finishes the owed write of the current state if the slot's
+ * stamp shows it has not happened yet, so the write is done exactly once no
+ * matter which thread gets there first, and nobody ever waits on the thread
+ * which made the operation. A failed CAS always means another operation
+ * succeeded.
+ *
+ * Both ends share the one state reference, since a push at either end can
+ * make a pop at the other fail, and every operation contends on it. Work that
+ * does not need a global order scales further on a StripedDeque.
+ *
+ * size(), isEmpty(), isFull() and the iterators are best-effort snapshots
+ * which may be stale by the time they return.
+ * Null elements are not permitted.
+ * Memory Complexity: O(capacity) + O(1) = O(capacity)
+ * @param <T> The type of array elements.
+ */
+public class ConcurrentArrayDeque<T> implements SimpleDeque<T> {
+    private static final VarHandle STATE;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final int MAX_SLOTS = 1 << 30;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(ConcurrentArrayDeque.class,
+                    "state", State.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int capacity;
+    private final int mask;
+    // Cells, or null for a slot which has never been written
+    private final Object[] slots;
+    private volatile State state;
+
+    /**
+     * Constructs a new concurrent deque with limited capacity.
+     * Time complexity: O(capacity)
+     * Memory complexity: O(capacity)
+     * @param capacity the capacity
+     * @throws IllegalArgumentException if capacity <= 0
+     */
+    public ConcurrentArrayDeque(int capacity) throws IllegalArgumentException {
+        if (capacity <= 0 || capacity > MAX_SLOTS) {
+            throw new IllegalArgumentException();
+        }
+        int length = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.capacity = capacity;
+        this.mask = length - 1;
+        this.slots = new Object[length];
+        this.state = new State(0, 0, 0, 0, null);
+    }
+
+    /**
+     * Returns whether the deque is empty (best-effort).
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the deque is empty, otherwise false.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns whether the deque is full (best-effort).
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the deque is full, otherwise false.
+     */
+    @Override
+    public boolean isFull() {
+        return size() == capacity;
+    }
+
+    /**
+     * Returns the number of elements currently stored in the deque (best-effort).
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return Number of elements.
+     */
+    @Override
+    public int size() {
+        return state.size();
+    }
+
+    /**
+     * Pushes an element to the left of the deque.
+     * Time complexity: O(1) (retried only when another operation succeeds)
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @throws NullPointerException if e is null
+     * @throws RuntimeException if the deque is already full
+     */
+    @Override
+    public void pushLeft(T e) throws RuntimeException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            State s = current();
+            if (s.size() >= capacity) {
+                throw new RuntimeException();
+            }
+            int position = s.left - 1;
+            if (advance(s, position, s.right, position, e)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Pushes an element to the right of the deque.
+     * Time complexity: O(1) (retried only when another operation succeeds)
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @throws NullPointerException if e is null
+     * @throws RuntimeException if the deque is already full
+     */
+    @Override
+    public void pushRight(T e) throws RuntimeException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            State s = current();
+            if (s.size() >= capacity) {
+                throw new RuntimeException();
+            }
+            int position = s.right;
+            if (advance(s, s.left, position + 1, position, e)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the element at the left of the deque, but does not remove it.
+     * Time complexity: O(1) (retried only when another operation succeeds)
+     * Memory complexity: O(1)
+     * @returns the leftmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T peekLeft() throws NoSuchElementException {
+        while (true) {
+            State s = current();
+            if (s.size() <= 0) {
+                throw new NoSuchElementException();
+            }
+            T element = read(s.left);
+            // Only trust the read if no operation took effect meanwhile
+            if (s == state) {
+                return element;
+            }
+        }
+    }
+
+    /**
+     * Returns the element at the right of the deque, but does not remove it.
+     * Time complexity: O(1) (retried only when another operation succeeds)
+     * Memory complexity: O(1)
+     * @returns the rightmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T peekRight() throws NoSuchElementException {
+        while (true) {
+            State s = current();
+            if (s.size() <= 0) {
+                throw new NoSuchElementException();
+            }
+            T element = read(s.right - 1);
+            if (s == state) {
+                return element;
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the element at the left of the deque.
+     * Time complexity: O(1) (retried only when another operation succeeds)
+     * Memory complexity: O(1)
+     * @returns the leftmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T popLeft() throws NoSuchElementException {
+        while (true) {
+            State s = current();
+            if (s.size() <= 0) {
+                throw new NoSuchElementException();
+            }
+            int position = s.left;
+            // Reliable if the CAS succeeds, since then no operation came in between
+            T element = read(position);
+            if (advance(s, position + 1, s.right, position, null)) {
+                return element;
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the element at the right of the deque.
+     * Time complexity: O(1) (retried only when another operation succeeds)
+     * Memory complexity: O(1)
+     * @returns the rightmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T popRight() throws NoSuchElementException {
+        while (true) {
+            State s = current();
+            if (s.size() <= 0) {
+                throw new NoSuchElementException();
+            }
+            int position = s.right - 1;
+            T element = read(position);
+            if (advance(s, s.left, position, position, null)) {
+                return element;
+            }
+        }
+    }
+
+    /**
+     * Returns a weakly consistent iterator in left to right sequence. It walks
+     * the positions present when it was created and skips slots that have
+     * since been rewritten.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1)
+     * @returns an iterator over the elements in in order from leftmost to rightmost.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        State s = current();
+        return new SnapshotIterator(s.left, s.size(), 1, s.sequence);
+    }
+
+    /**
+     * Returns a weakly consistent iterator in right to left sequence. It walks
+     * the positions present when it was created and skips slots that have
+     * since been rewritten.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1)
+     * @returns an iterator over the elements in in order from rightmost to leftmost.
+     */
+    @Override
+    public Iterator<T> reverseIterator() {
+        State s = current();
+        return new SnapshotIterator(s.right - 1, s.size(), -1, s.sequence);
+    }
+
+    /**
+     * Returns the current state after making sure the slot write it owes has
+     * been done, so that the slots of its positions can be read.
+     */
+    private State current() {
+        State s = state;
+        s.finish(slots, mask);
+        return s;
+    }
+
+    /**
+     * Tries to make the next operation take effect: move the ends to left and
+     * right and write element (null to clear) to position.
+     * @return whether the state was still s
+     */
+    private boolean advance(State s, int left, int right, int position, T element) {
+        State next = new State(left, right, s.sequence + 1, position, element);
+        if (STATE.compareAndSet(this, s, next)) {
+            next.finish(slots, mask);
+            return true;
+        }
+        return false;
+    }
+
+    private T read(int position) {
+        return (T) ((Cell) SLOTS.getAcquire(slots, position & mask)).element;
+    }
+
+    /**
+     * The ends of the deque after the operation numbered sequence, together
+     * with the slot write that operation owes.
+     */
+    private static final class State {
+        final int left;
+        // Exclusive
+        final int right;
+        final long sequence;
+        final int position;
+        final Cell cell;
+
+        private State(int left, int right, long sequence, int position, Object element) {
+            this.left = left;
+            this.right = right;
+            this.sequence = sequence;
+            this.position = position;
+            this.cell = new Cell(element, sequence);
+        }
+
+        int size() {
+            return right - left;
+        }
+
+        /**
+         * Writes this state's cell unless its slot already holds it or a later
+         * one. Any number of threads may call this at once.
+         */
+        void finish(Object[] slots, int mask) {
+            if (sequence == 0) {
+                return;
+            }
+            int slot = position & mask;
+            while (true) {
+                Cell current = (Cell) SLOTS.getAcquire(slots, slot);
+                if (current != null && current.sequence >= sequence) {
+                    return;
+                }
+                if (SLOTS.compareAndSet(slots, slot, current, cell)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The contents of a slot and the sequence number of the operation which
+     * wrote them.
+     */
+    private static final class Cell {
+        final Object element;
+        final long sequence;
+
+        private Cell(Object element, long sequence) {
+            this.element = element;
+            this.sequence = sequence;
+        }
+    }
+
+    private class SnapshotIterator implements Iterator<T> {
+        private int position;
+        private int remaining;
+        private final int step;
+        // Sequence number of the state the iterator walks
+        private final long sequence;
+        private T next;
+
+        private SnapshotIterator(int start, int count, int step, long sequence) {
+            this.position = start;
+            this.remaining = count;
+            this.step = step;
+            this.sequence = sequence;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            T element = next;
+            advance();
+            return element;
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && remaining > 0) {
+                Cell cell = (Cell) SLOTS.getAcquire(slots, position & mask);
+                // A later cell belongs to an operation after the snapshot
+                if (cell.sequence <= sequence) {
+                    next = (T) cell.element;
+                }
+                position += step;
+                remaining--;
+            }
+        }
+    }
+}
@@ -0,0 +1,456 @@
+import java.util.HashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Thread-safe bounded cache keeping its entries in SimpleLinkedDeque recency
+ * deques, with a HashMap from each key to its Node, which remembers the Link
+ * holding it so that get, put and move-to-front are all O(1). Evictions pop
+ * the least recently used (right) end.
+ *
+ * Three policies are offered:
+ * LRU evicts the least recently used entry.
+ * SLRU (segmented LRU) puts new entries on probation and promotes them to a
+ * protected segment (80% of the space) when they are hit again, so a scan of
+ * one-off keys cannot flush the entries which are actually reused.
+ * W_TINY_LFU puts new entries in a small LRU window (1% of the space) in front
+ * of an SLRU main space. An entry leaving the window is only admitted to the
+ * main space if a frequency sketch says it is used more often than the entry
+ * it would evict.
+ *
+ * The cache can be split into independently locked segments by key hash, each
+ * holding an equal share of the capacity, so that threads working on
+ * different keys do not contend. Null keys and values are not permitted.
+ * Memory Complexity: O(capacity) + O(segments)
+ * @param <K> The type of keys.
+ * @param <V> The type of values.
+ */
+public class DequeCache<K, V> {
+    /**
+     * Eviction and admission policy.
+     */
+    public enum Policy {
+        LRU, SLRU, W_TINY_LFU
+    }
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final Policy policy;
+    private final int capacity;
+    private final Segment<K, V>[] segments;
+    // segments.length - 1, used to map a key hash to a segment
+    private final int segmentMask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs a new cache with a single lock.
+     * Time complexity: O(1)
+     * Memory complexity: O(capacity) (for the W_TINY_LFU sketch)
+     * @param capacity the maximum number of entries
+     * @param policy the eviction and admission policy
+     * @throws IllegalArgumentException if capacity <= 0
+     * @requires policy != null
+     */
+    public DequeCache(int capacity, Policy policy) throws IllegalArgumentException {
+        this(capacity, policy, 1);
+    }
+
+    /**
+     * Constructs a new cache split into independently locked segments.
+     * Time complexity: O(segments)
+     * Memory complexity: O(segments + capacity)
+     * @param capacity the maximum number of entries
+     * @param policy the eviction and admission policy
+     * @param segments the minimum number of segments (rounded up to a power of two)
+     * @throws IllegalArgumentException if capacity <= 0, segments <= 0 or
+     * there would be more segments than capacity
+     * @requires policy != null
+     */
+    public DequeCache(int capacity, Policy policy, int segments) throws IllegalArgumentException {
+        if (capacity <= 0 || segments <= 0 || segments > capacity) {
+            throw new IllegalArgumentException();
+        }
+        int length = segments <= 1 ? 1 : Integer.highestOneBit(segments - 1) << 1;
+        if (length > capacity) {
+            throw new IllegalArgumentException();
+        }
+        this.policy = policy;
+        this.capacity = capacity;
+        // Generic arrays cannot be created directly; every element is a Segment<K, V>
+        @SuppressWarnings("unchecked")
+        Segment<K, V>[] array = (Segment<K, V>[]) new Segment<?, ?>[length];
+        for (int i = 0; i < length; i++) {
+            // Spread the remainder over the first segments
+            int share = capacity / length + (i < capacity % length ? 1 : 0);
+            array[i] = new Segment<>(this, share);
+        }
+        this.segments = array;
+        this.segmentMask = length - 1;
+    }
+
+    /**
+     * Returns the cached value for a key, marking it as recently used.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param key the key to look up
+     * @return the value, or null if the key is not cached
+     * @throws NullPointerException if key is null
+     */
+    public V get(K key) {
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    /**
+     * Caches a value for a key, replacing any previous value. This may evict
+     * another entry, or (under W_TINY_LFU) may later decline to admit this one.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param key the key
+     * @param value the value
+     * @throws NullPointerException if key or value is null
+     */
+    public void put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        int hash = hash(key);
+        segmentFor(hash).put(key, value, hash);
+    }
+
+    /**
+     * Returns the cached value for a key, computing and caching it on a miss.
+     * The computation runs without holding any lock, so another thread missing
+     * on the same key at the same time may compute it as well.
+     * Time complexity: O(1) plus the computation on a miss
+     * Memory complexity: O(1)
+     * @param key the key
+     * @param loader computes the value for a key that is not cached
+     * @return the cached or computed value
+     * @throws NullPointerException if key is null or loader returns null
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Removes a key from the cache. This is not counted as an eviction.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param key the key to remove
+     * @return the value which was cached, or null if there was none
+     * @throws NullPointerException if key is null
+     */
+    public V remove(K key) {
+        int hash = hash(key);
+        return segmentFor(hash).remove(key);
+    }
+
+    /**
+     * Returns the number of cached entries.
+     * Time complexity: O(segments)
+     * Memory complexity: O(1)
+     * @return Number of entries.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.index.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of cached entries.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return the capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of get calls (including those made by
+     * computeIfAbsent) which found their key
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of get calls (including those made by
+     * computeIfAbsent) which did not find their key
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of entries dropped to make room, including window
+     * entries not admitted to the main space under W_TINY_LFU
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private Segment<K, V> segmentFor(int hash) {
+        // The sketch uses the low bits, so pick the segment with the high ones
+        return segments[(hash >>> 16) & segmentMask];
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 15);
+    }
+
+    /**
+     * An independently locked part of the cache, with its own index, recency
+     * deques and frequency sketch. It only shares the statistics counters of
+     * the cache it belongs to.
+     */
+    private static final class Segment<K, V> {
+        final DequeCache<K, V> cache;
+        final ReentrantLock lock = new ReentrantLock();
+        final HashMap<K, Node<K, V>> index = new HashMap<>();
+        final SimpleLinkedDeque<Node<K, V>> window = new SimpleLinkedDeque<>();
+        final SimpleLinkedDeque<Node<K, V>> probation = new SimpleLinkedDeque<>();
+        final SimpleLinkedDeque<Node<K, V>> protectedList = new SimpleLinkedDeque<>();
+        final int windowLimit;
+        final int mainLimit;
+        final int protectedLimit;
+        final FrequencySketch sketch;
+
+        private Segment(DequeCache<K, V> cache, int capacity) {
+            Policy policy = cache.policy;
+            this.cache = cache;
+            this.windowLimit = policy == Policy.W_TINY_LFU ? Math.max(1, capacity / 100) : 0;
+            this.mainLimit = capacity - windowLimit;
+            this.protectedLimit = policy == Policy.LRU ? 0 : mainLimit * 4 / 5;
+            this.sketch = policy == Policy.W_TINY_LFU ? new FrequencySketch(capacity) : null;
+        }
+
+        V get(K key, int hash) {
+            lock.lock();
+            try {
+                if (sketch != null) {
+                    sketch.increment(hash);
+                }
+                Node<K, V> node = index.get(key);
+                if (node == null) {
+                    cache.misses.increment();
+                    return null;
+                }
+                cache.hits.increment();
+                touch(node);
+                return node.value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(K key, V value, int hash) {
+            lock.lock();
+            try {
+                // A write is a use too, so a key that is only ever put still
+                // gains frequency and can win admission
+                if (sketch != null) {
+                    sketch.increment(hash);
+                }
+                Node<K, V> node = index.get(key);
+                if (node != null) {
+                    node.value = value;
+                    touch(node);
+                    return;
+                }
+                node = new Node<>(key, value, hash);
+                index.put(key, node);
+                if (windowLimit > 0) {
+                    node.queue = WINDOW;
+                    addFirst(window, node);
+                    if (window.size() > windowLimit) {
+                        admit(window.popRight());
+                    }
+                } else {
+                    node.queue = PROBATION;
+                    addFirst(probation, node);
+                    if (probation.size() + protectedList.size() > mainLimit) {
+                        evict(probation.isEmpty() ? protectedList.popRight()
+                                : probation.popRight());
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        V remove(K key) {
+            lock.lock();
+            try {
+                Node<K, V> node = index.remove(key);
+                if (node == null) {
+                    return null;
+                }
+                listOf(node).unlink(node.link);
+                return node.value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Marks an entry as recently used, promoting it from probation to the
+         * protected segment under SLRU and W_TINY_LFU.
+         */
+        private void touch(Node<K, V> node) {
+            if (node.queue != PROBATION || protectedLimit == 0) {
+                listOf(node).moveToLeft(node.link);
+                return;
+            }
+            probation.unlink(node.link);
+            node.queue = PROTECTED;
+            addFirst(protectedList, node);
+            if (protectedList.size() > protectedLimit) {
+                Node<K, V> demoted = protectedList.popRight();
+                demoted.queue = PROBATION;
+                addFirst(probation, demoted);
+            }
+        }
+
+        /**
+         * Moves an entry leaving the window into the main space, if there is
+         * room or it is used more often than the main space's eviction victim.
+         */
+        private void admit(Node<K, V> candidate) {
+            if (probation.size() + protectedList.size() < mainLimit) {
+                candidate.queue = PROBATION;
+                addFirst(probation, candidate);
+                return;
+            }
+            // The main space may have no room at all in a tiny segment
+            Node<K, V> victim = !probation.isEmpty() ? probation.peekRight()
+                    : !protectedList.isEmpty() ? protectedList.peekRight() : null;
+            if (victim != null
+                    && sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+                listOf(victim).unlink(victim.link);
+                evict(victim);
+                candidate.queue = PROBATION;
+                addFirst(probation, candidate);
+            } else {
+                evict(candidate);
+            }
+        }
+
+        private void evict(Node<K, V> node) {
+            index.remove(node.key);
+            cache.evictions.increment();
+        }
+
+        private static <K, V> void addFirst(SimpleLinkedDeque<Node<K, V>> list, Node<K, V> node) {
+            node.link = list.pushLeftLink(node);
+        }
+
+        private SimpleLinkedDeque<Node<K, V>> listOf(Node<K, V> node) {
+            switch (node.queue) {
+                case WINDOW:
+                    return window;
+                case PROBATION:
+                    return probation;
+                default:
+                    return protectedList;
+            }
+        }
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final int hash;
+        V value;
+        int queue;
+        // The Link holding this Node in its recency deque
+        SimpleLinkedDeque.Link<Node<K, V>> link;
+
+        private Node(K key, V value, int hash) {
+            this.key = key;
+            this.value = value;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4 bit counters estimating how often each key hash
+     * has been seen, packed two counters to a byte. Every counter is halved
+     * once the number of increments reaches ten times the width, so old
+     * popularity fades.
+     */
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x97CB3127, 0xB1A83721, 0x8C2F1E5B, 0xC1D3A9E7};
+
+        // Counter j of a row is the low (j even) or high (j odd) nibble of byte j / 2
+        private final byte[][] counters = new byte[DEPTH][];
+        private final int mask;
+        private final int resetThreshold;
+        private int additions;
+
+        private FrequencySketch(int capacity) {
+            // Two to four counters a row per entry, packed into one to two bytes
+            int width = Integer.highestOneBit(Math.max(16, capacity - 1)) << 2;
+            for (int i = 0; i < DEPTH; i++) {
+                counters[i] = new byte[width / 2];
+            }
+            this.mask = width - 1;
+            this.resetThreshold = 10 * width;
+        }
+
+        void increment(int hash) {
+            for (int i = 0; i < DEPTH; i++) {
+                int slot = slot(hash, i);
+                int shift = (slot & 1) << 2;
+                if (((counters[i][slot >>> 1] >>> shift) & MAX_COUNT) < MAX_COUNT) {
+                    counters[i][slot >>> 1] += (byte) (1 << shift);
+                }
+            }
+            if (++additions >= resetThreshold) {
+                for (byte[] row : counters) {
+                    for (int j = 0; j < row.length; j++) {
+                        // Halve both nibbles, dropping the bit each shifts into the other
+                        row[j] = (byte) (((row[j] & 0xFF) >>> 1) & 0x77);
+                    }
+                }
+                additions >>= 1;
+            }
+        }
+
+        int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < DEPTH; i++) {
+                int slot = slot(hash, i);
+                int count = (counters[i][slot >>> 1] >>> ((slot & 1) << 2)) & MAX_COUNT;
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        private int slot(int hash, int row) {
+            int h = hash * SEEDS[row];
+            return (h ^ (h >>> 17)) & mask;
+        }
+    }
+}
@@ -0,0 +1,470 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+
+/**
+ * Compact binary format for deque contents, written to and read from NIO
+ * channels.
+ *
+ * A stream starts with a 4 byte magic number, a 1 byte kind and a 4 byte
+ * element count. Object elements follow as length-prefixed records produced by
+ * a Codec; IntArrayDeque and LongArrayDeque elements follow as raw 4 and 8
+ * byte values. Elements are streamed through one reusable staging buffer
+ * straight from the source deque and straight into the destination deque, so
+ * no intermediate copy of the contents is made.
+ *
+ * A length prefix is never trusted further than the reader allows: records
+ * longer than maxElementSize (16MiB unless the caller passes its own limit)
+ * are rejected before any buffer is allocated for them. The writer enforces
+ * the same limit, so a stream written with the defaults can always be read
+ * back with the defaults.
+ */
+public final class DequeSerializer {
+    // Distinct from MappedRecordDeque's magic, so neither accepts the other's files
+    private static final int MAGIC = 0x53445153; // "SDQS"
+    private static final byte KIND_OBJECTS = 0;
+    private static final byte KIND_INTS = 1;
+    private static final byte KIND_LONGS = 2;
+    private static final int HEADER_SIZE = 9;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int DEFAULT_MAX_ELEMENT_SIZE = 1 << 24;
+
+    /**
+     * Converts elements to and from bytes.
+     * @param <T> The type of elements.
+     */
+    public interface Codec<T> {
+        /**
+         * @return the exact number of bytes write() produces for element
+         */
+        int size(T element);
+
+        /**
+         * Writes element at the buffer's position, which has at least
+         * size(element) bytes remaining.
+         */
+        void write(T element, ByteBuffer buffer);
+
+        /**
+         * Reads an element from the buffer, whose remaining bytes are exactly
+         * those written for one element.
+         */
+        T read(ByteBuffer buffer);
+    }
+
+    /**
+     * Codec storing Integers as 4 bytes.
+     */
+    public static final Codec<Integer> INTEGER = new Codec<Integer>() {
+        @Override
+        public int size(Integer element) {
+            return Integer.BYTES;
+        }
+
+        @Override
+        public void write(Integer element, ByteBuffer buffer) {
+            buffer.putInt(element);
+        }
+
+        @Override
+        public Integer read(ByteBuffer buffer) {
+            return buffer.getInt();
+        }
+    };
+
+    /**
+     * Codec storing Longs as 8 bytes.
+     */
+    public static final Codec<Long> LONG = new Codec<Long>() {
+        @Override
+        public int size(Long element) {
+            return Long.BYTES;
+        }
+
+        @Override
+        public void write(Long element, ByteBuffer buffer) {
+            buffer.putLong(element);
+        }
+
+        @Override
+        public Long read(ByteBuffer buffer) {
+            return buffer.getLong();
+        }
+    };
+
+    /**
+     * Codec storing Strings as UTF-8. Unpaired surrogates are written as '?',
+     * as String.getBytes does. Each thread reuses one CharsetEncoder and
+     * CharsetDecoder, which encode straight into and decode straight out of
+     * the serializer's buffer, so no byte[] is made per element.
+     */
+    public static final Codec<String> STRING = new Codec<String>() {
+        private final ThreadLocal<CharsetEncoder> encoder = ThreadLocal.withInitial(() ->
+                StandardCharsets.UTF_8.newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        private final ThreadLocal<CharsetDecoder> decoder = ThreadLocal.withInitial(() ->
+                StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        // Decoded characters, kept between reads unless a large element grew it
+        private final ThreadLocal<CharBuffer> chars = new ThreadLocal<>();
+
+        @Override
+        public int size(String element) {
+            int length = 0;
+            for (int i = 0; i < element.length(); i++) {
+                char c = element.charAt(i);
+                if (c < 0x80) {
+                    length += 1;
+                } else if (c < 0x800) {
+                    length += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < element.length()
+                        && Character.isLowSurrogate(element.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    length += 1;
+                } else {
+                    length += 3;
+                }
+            }
+            return length;
+        }
+
+        @Override
+        public void write(String element, ByteBuffer buffer) {
+            CharsetEncoder utf8 = encoder.get().reset();
+            // size() reserved room for every byte, so neither call can overflow
+            utf8.encode(CharBuffer.wrap(element), buffer, true);
+            utf8.flush(buffer);
+        }
+
+        @Override
+        public String read(ByteBuffer buffer) {
+            // UTF-8 never decodes to more chars than it has bytes
+            int length = buffer.remaining();
+            CharBuffer out = chars.get();
+            if (out == null || out.capacity() < length) {
+                out = CharBuffer.allocate(Math.max(length, BUFFER_SIZE));
+                if (out.capacity() == BUFFER_SIZE) {
+                    chars.set(out);
+                }
+            }
+            out.clear();
+            CharsetDecoder utf8 = decoder.get().reset();
+            CoderResult result = utf8.decode(buffer, out, true);
+            if (!result.isOverflow()) {
+                result = utf8.flush(out);
+            }
+            if (result.isOverflow()) {
+                throw new IllegalStateException("Decoded more chars than bytes");
+            }
+            out.flip();
+            return out.toString();
+        }
+    };
+
+    private DequeSerializer() {
+    }
+
+    /**
+     * Writes the elements of a deque, left to right, to a channel. Elements
+     * may be at most 16MiB once encoded, as read(ReadableByteChannel, Codec,
+     * SimpleDeque) requires.
+     * Time complexity: O(size + total encoded size)
+     * Memory complexity: O(max(64KiB, largest encoded element))
+     * @param deque the deque to write. deque is left intact.
+     * @param codec the codec for the elements
+     * @param channel the channel to write to
+     * @throws IllegalArgumentException if an element is larger than 16MiB once
+     * encoded. The elements before it have already been written.
+     * @throws IOException if the channel fails
+     */
+    public static <T> void write(SimpleDeque<? extends T> deque, Codec<? super T> codec,
+                                 WritableByteChannel channel) throws IOException {
+        write(deque, codec, channel, DEFAULT_MAX_ELEMENT_SIZE);
+    }
+
+    /**
+     * Writes the elements of a deque, left to right, to a channel, refusing
+     * any element whose encoded size is larger than maxElementSize so that
+     * the stream can be read back with the same limit.
+     * Time complexity: O(size + total encoded size)
+     * Memory complexity: O(max(64KiB, largest encoded element))
+     * @param deque the deque to write. deque is left intact.
+     * @param codec the codec for the elements
+     * @param channel the channel to write to
+     * @param maxElementSize the largest encoded element size to write, in bytes
+     * @throws IllegalArgumentException if maxElementSize < 0, or if an element
+     * is larger than maxElementSize once encoded. The elements before it have
+     * already been written.
+     * @throws IOException if the channel fails
+     */
+    public static <T> void write(SimpleDeque<? extends T> deque, Codec<? super T> codec,
+                                 WritableByteChannel channel, int maxElementSize)
+            throws IOException {
+        if (maxElementSize < 0) {
+            throw new IllegalArgumentException();
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        int count = deque.size();
+        writeHeader(buffer, KIND_OBJECTS, count);
+        Iterator<? extends T> it = deque.iterator();
+        for (int i = 0; i < count; i++) {
+            T element = it.next();
+            int size = codec.size(element);
+            if (size < 0 || size > maxElementSize) {
+                flush(buffer, channel);
+                throw new IllegalArgumentException("Element encodes to " + size
+                        + " bytes, more than " + maxElementSize);
+            }
+            int recordSize = Integer.BYTES + size;
+            if (buffer.remaining() < recordSize) {
+                flush(buffer, channel);
+                if (buffer.capacity() < recordSize) {
+                    buffer = ByteBuffer.allocateDirect(recordSize);
+                }
+            }
+            buffer.putInt(size);
+            int start = buffer.position();
+            codec.write(element, buffer);
+            if (buffer.position() - start != size) {
+                throw new IllegalStateException("Codec wrote a different size than it reported");
+            }
+        }
+        flush(buffer, channel);
+    }
+
+    /**
+     * Writes the elements of an IntArrayDeque, left to right, to a channel
+     * without boxing them.
+     * Time complexity: O(size)
+     * Memory complexity: O(64KiB)
+     * @param deque the deque to write. deque is left intact.
+     * @param channel the channel to write to
+     * @throws IOException if the channel fails
+     */
+    public static void write(IntArrayDeque deque, WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        int count = deque.size();
+        writeHeader(buffer, KIND_INTS, count);
+        PrimitiveIterator.OfInt it = deque.iterator();
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < Integer.BYTES) {
+                flush(buffer, channel);
+            }
+            buffer.putInt(it.nextInt());
+        }
+        flush(buffer, channel);
+    }
+
+    /**
+     * Writes the elements of a LongArrayDeque, left to right, to a channel
+     * without boxing them.
+     * Time complexity: O(size)
+     * Memory complexity: O(64KiB)
+     * @param deque the deque to write. deque is left intact.
+     * @param channel the channel to write to
+     * @throws IOException if the channel fails
+     */
+    public static void write(LongArrayDeque deque, WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        int count = deque.size();
+        writeHeader(buffer, KIND_LONGS, count);
+        PrimitiveIterator.OfLong it = deque.iterator();
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < Long.BYTES) {
+                flush(buffer, channel);
+            }
+            buffer.putLong(it.nextLong());
+        }
+        flush(buffer, channel);
+    }
+
+    /**
+     * Reads elements written by write(SimpleDeque, ...) from a channel and
+     * pushes them to the right of dest, which may be any SimpleDeque such as a
+     * SimpleArrayDeque or SimpleLinkedDeque. Elements may be at most 16MiB
+     * once encoded.
+     * Time complexity: O(count + total encoded size)
+     * Memory complexity: O(max(64KiB, largest encoded element))
+     * @param channel the channel to read from
+     * @param codec the codec for the elements
+     * @param dest the deque to restore into
+     * @return the number of elements read
+     * @throws EOFException if the stream ends early
+     * @throws StreamCorruptedException if the stream was not written by
+     * write(SimpleDeque, ...) or holds an element larger than 16MiB
+     * @throws RuntimeException if dest becomes full
+     * @throws IOException if the channel fails
+     */
+    public static <T> int read(ReadableByteChannel channel, Codec<? extends T> codec,
+                               SimpleDeque<? super T> dest) throws IOException {
+        return read(channel, codec, dest, DEFAULT_MAX_ELEMENT_SIZE);
+    }
+
+    /**
+     * Reads elements written by write(SimpleDeque, ...) from a channel and
+     * pushes them to the right of dest, rejecting any element whose encoded
+     * size is larger than maxElementSize before allocating room for it.
+     * Time complexity: O(count + total encoded size)
+     * Memory complexity: O(max(64KiB, largest encoded element))
+     * @param channel the channel to read from
+     * @param codec the codec for the elements
+     * @param dest the deque to restore into
+     * @param maxElementSize the largest encoded element size to accept, in bytes
+     * @return the number of elements read
+     * @throws IllegalArgumentException if maxElementSize < 0
+     * @throws EOFException if the stream ends early
+     * @throws StreamCorruptedException if the stream was not written by
+     * write(SimpleDeque, ...) or holds an element larger than maxElementSize
+     * @throws RuntimeException if dest becomes full
+     * @throws IOException if the channel fails
+     */
+    public static <T> int read(ReadableByteChannel channel, Codec<? extends T> codec,
+                               SimpleDeque<? super T> dest, int maxElementSize)
+            throws IOException {
+        if (maxElementSize < 0) {
+            throw new IllegalArgumentException();
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.flip();
+        int count = readHeader(buffer, channel, KIND_OBJECTS);
+        for (int i = 0; i < count; i++) {
+            buffer = fill(buffer, channel, Integer.BYTES);
+            int size = buffer.getInt();
+            if (size < 0 || size > maxElementSize) {
+                throw new StreamCorruptedException();
+            }
+            buffer = fill(buffer, channel, size);
+            int end = buffer.position() + size;
+            int limit = buffer.limit();
+            buffer.limit(end);
+            dest.pushRight(codec.read(buffer));
+            buffer.limit(limit);
+            buffer.position(end);
+        }
+        return count;
+    }
+
+    /**
+     * Reads ints written by write(IntArrayDeque, ...) from a channel and
+     * pushes them to the right of dest without boxing them.
+     * Time complexity: O(count)
+     * Memory complexity: O(64KiB)
+     * @param channel the channel to read from
+     * @param dest the deque to restore into
+     * @return the number of elements read
+     * @throws EOFException if the stream ends early
+     * @throws StreamCorruptedException if the stream was not written by write(IntArrayDeque, ...)
+     * @throws RuntimeException if dest becomes full
+     * @throws IOException if the channel fails
+     */
+    public static int read(ReadableByteChannel channel, IntArrayDeque dest) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.flip();
+        int count = readHeader(buffer, channel, KIND_INTS);
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < Integer.BYTES) {
+                buffer = fill(buffer, channel, Integer.BYTES);
+            }
+            dest.pushRight(buffer.getInt());
+        }
+        return count;
+    }
+
+    /**
+     * Reads longs written by write(LongArrayDeque, ...) from a channel and
+     * pushes them to the right of dest without boxing them.
+     * Time complexity: O(count)
+     * Memory complexity: O(64KiB)
+     * @param channel the channel to read from
+     * @param dest the deque to restore into
+     * @return the number of elements read
+     * @throws EOFException if the stream ends early
+     * @throws StreamCorruptedException if the stream was not written by write(LongArrayDeque, ...)
+     * @throws RuntimeException if dest becomes full
+     * @throws IOException if the channel fails
+     */
+    public static int read(ReadableByteChannel channel, LongArrayDeque dest) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.flip();
+        int count = readHeader(buffer, channel, KIND_LONGS);
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < Long.BYTES) {
+                buffer = fill(buffer, channel, Long.BYTES);
+            }
+            dest.pushRight(buffer.getLong());
+        }
+        return count;
+    }
+
+    private static void writeHeader(ByteBuffer buffer, byte kind, int count) {
+        buffer.putInt(MAGIC);
+        buffer.put(kind);
+        buffer.putInt(count);
+    }
+
+    private static int readHeader(ByteBuffer buffer, ReadableByteChannel channel, byte kind)
+            throws IOException {
+        fill(buffer, channel, HEADER_SIZE);
+        if (buffer.getInt() != MAGIC || buffer.get() != kind) {
+            throw new StreamCorruptedException();
+        }
+        int count = buffer.getInt();
+        if (count < 0) {
+            throw new StreamCorruptedException();
+        }
+        return count;
+    }
+
+    /**
+     * Writes out everything in the buffer and clears it for more writes.
+     */
+    private static void flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads from the channel until the buffer (in read mode) has at least n
+     * bytes remaining, replacing it with a larger buffer if it is too small.
+     * @return the buffer to keep reading from
+     * @throws EOFException if the channel ends first
+     */
+    private static ByteBuffer fill(ByteBuffer buffer, ReadableByteChannel channel, int n)
+            throws IOException {
+        if (buffer.remaining() >= n) {
+            return buffer;
+        }
+        if (buffer.capacity() < n) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(n);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < n) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,485 @@
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Decorator which records usage statistics for any SimpleDeque.
+ *
+ * Counts pushes, pops and peeks on each side, pushes rejected because the
+ * deque was full, pops and peeks rejected because it was empty, the largest
+ * size seen, and (for a SimpleArrayDeque) how often the backing array was
+ * resized, whether grown by a push or automatically shrunk by a pop. Latency
+ * histograms are only recorded when enabled, since they cost two
+ * System.nanoTime() calls per operation.
+ *
+ * Instrumentation is opt-in: deques which are not wrapped pay nothing. The
+ * counters are thread-safe, so a thread-safe deque stays thread-safe when
+ * wrapped. The statistics can be read with snapshot() or published over JMX
+ * with register().
+ * Memory Complexity: O(1) + O(wrapped deque)
+ * @param <T> The type of array elements.
+ */
+public class InstrumentedDeque<T> implements SimpleDeque<T>, InstrumentedDequeMBean {
+    // Bucket i holds latencies in [2^i, 2^(i+1)) ns; the last bucket is open ended
+    private static final int LATENCY_BUCKETS = 40;
+
+    private final SimpleDeque<T> deque;
+    // The wrapped deque when it can report resizes, otherwise null
+    private final SimpleArrayDeque<T> arrayDeque;
+    private final boolean trackLatency;
+    private ObjectName objectName;
+
+    private final LongAdder pushLeftCount = new LongAdder();
+    private final LongAdder pushRightCount = new LongAdder();
+    private final LongAdder popLeftCount = new LongAdder();
+    private final LongAdder popRightCount = new LongAdder();
+    private final LongAdder peekLeftCount = new LongAdder();
+    private final LongAdder peekRightCount = new LongAdder();
+    private final LongAdder fullRejections = new LongAdder();
+    private final LongAdder emptyRejections = new LongAdder();
+    private final LongAdder resizes = new LongAdder();
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+    private final AtomicLongArray pushLatency = new AtomicLongArray(LATENCY_BUCKETS);
+    private final AtomicLongArray popLatency = new AtomicLongArray(LATENCY_BUCKETS);
+
+    /**
+     * Wraps a deque, counting operations but not timing them.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param deque the deque to instrument
+     * @requires deque != null
+     */
+    public InstrumentedDeque(SimpleDeque<T> deque) {
+        this(deque, false);
+    }
+
+    /**
+     * Wraps a deque, counting operations and optionally timing them.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param deque the deque to instrument
+     * @param trackLatency whether to record latency histograms
+     * @requires deque != null
+     */
+    public InstrumentedDeque(SimpleDeque<T> deque, boolean trackLatency) {
+        this.deque = deque;
+        this.arrayDeque = deque instanceof SimpleArrayDeque ? (SimpleArrayDeque<T>) deque : null;
+        this.trackLatency = trackLatency;
+        this.highWaterMark.set(deque.size());
+    }
+
+    /**
+     * Registers this deque with the platform MBean server under
+     * SimpleDeque:type=InstrumentedDeque,name=&lt;name&gt;.
+     * @param name the name to register under
+     * @return the ObjectName used
+     * @throws JMException if the name is invalid or already registered
+     */
+    public synchronized ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("SimpleDeque:type=InstrumentedDeque,name="
+                + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.objectName = objectName;
+        return objectName;
+    }
+
+    /**
+     * Removes this deque from the platform MBean server, if it was registered.
+     * @throws JMException if the MBean server rejects the request
+     */
+    public synchronized void unregister() throws JMException {
+        if (objectName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    /**
+     * Returns a copy of every statistic.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return the current statistics
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Returns whether the wrapped deque is empty.
+     * Time complexity: that of the wrapped deque
+     * Memory complexity: O(1)
+     * @return true if the deque is empty, otherwise false.
+     */
+    @Override
+    public boolean isEmpty() {
+        return deque.isEmpty();
+    }
+
+    /**
+     * Returns whether the wrapped deque is full.
+     * Time complexity: that of the wrapped deque
+     * Memory complexity: O(1)
+     * @return true if the deque is full, otherwise false.
+     */
+    @Override
+    public boolean isFull() {
+        return deque.isFull();
+    }
+
+    /**
+     * Returns the number of elements currently stored in the wrapped deque.
+     * Time complexity: that of the wrapped deque
+     * Memory complexity: O(1)
+     * @return Number of elements.
+     */
+    @Override
+    public int size() {
+        return deque.size();
+    }
+
+    /**
+     * Pushes an element to the left of the wrapped deque, counting it or the
+     * rejection.
+     * Time complexity: that of the wrapped deque, plus O(1)
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @throws RuntimeException if the deque is already full
+     */
+    @Override
+    public void pushLeft(T e) throws RuntimeException {
+        long start = startTimer();
+        int allocated = allocatedCapacity();
+        try {
+            deque.pushLeft(e);
+        } catch (RuntimeException ex) {
+            countPushFailure();
+            throw ex;
+        }
+        pushLeftCount.increment();
+        afterPush(allocated, start);
+    }
+
+    /**
+     * Pushes an element to the right of the wrapped deque, counting it or the
+     * rejection.
+     * Time complexity: that of the wrapped deque, plus O(1)
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @throws RuntimeException if the deque is already full
+     */
+    @Override
+    public void pushRight(T e) throws RuntimeException {
+        long start = startTimer();
+        int allocated = allocatedCapacity();
+        try {
+            deque.pushRight(e);
+        } catch (RuntimeException ex) {
+            countPushFailure();
+            throw ex;
+        }
+        pushRightCount.increment();
+        afterPush(allocated, start);
+    }
+
+    /**
+     * Returns the element at the left of the wrapped deque, counting the peek
+     * or the rejection.
+     * Time complexity: that of the wrapped deque, plus O(1)
+     * Memory complexity: O(1)
+     * @returns the leftmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T peekLeft() throws NoSuchElementException {
+        long start = startTimer();
+        T element;
+        try {
+            element = deque.peekLeft();
+        } catch (NoSuchElementException ex) {
+            emptyRejections.increment();
+            throw ex;
+        }
+        peekLeftCount.increment();
+        record(popLatency, start);
+        return element;
+    }
+
+    /**
+     * Returns the element at the right of the wrapped deque, counting the peek
+     * or the rejection.
+     * Time complexity: that of the wrapped deque, plus O(1)
+     * Memory complexity: O(1)
+     * @returns the rightmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T peekRight() throws NoSuchElementException {
+        long start = startTimer();
+        T element;
+        try {
+            element = deque.peekRight();
+        } catch (NoSuchElementException ex) {
+            emptyRejections.increment();
+            throw ex;
+        }
+        peekRightCount.increment();
+        record(popLatency, start);
+        return element;
+    }
+
+    /**
+     * Removes and returns the element at the left of the wrapped deque,
+     * counting the pop or the rejection.
+     * Time complexity: that of the wrapped deque, plus O(1)
+     * Memory complexity: O(1)
+     * @returns the leftmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T popLeft() throws NoSuchElementException {
+        long start = startTimer();
+        int allocated = allocatedCapacity();
+        T element;
+        try {
+            element = deque.popLeft();
+        } catch (NoSuchElementException ex) {
+            emptyRejections.increment();
+            throw ex;
+        }
+        popLeftCount.increment();
+        afterPop(allocated, start);
+        return element;
+    }
+
+    /**
+     * Removes and returns the element at the right of the wrapped deque,
+     * counting the pop or the rejection.
+     * Time complexity: that of the wrapped deque, plus O(1)
+     * Memory complexity: O(1)
+     * @returns the rightmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T popRight() throws NoSuchElementException {
+        long start = startTimer();
+        int allocated = allocatedCapacity();
+        T element;
+        try {
+            element = deque.popRight();
+        } catch (NoSuchElementException ex) {
+            emptyRejections.increment();
+            throw ex;
+        }
+        popRightCount.increment();
+        afterPop(allocated, start);
+        return element;
+    }
+
+    /**
+     * Returns the wrapped deque's left to right iterator. Iteration is not counted.
+     * @returns an iterator over the elements in in order from leftmost to rightmost.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return deque.iterator();
+    }
+
+    /**
+     * Returns the wrapped deque's right to left iterator. Iteration is not counted.
+     * @returns an iterator over the elements in in order from rightmost to leftmost.
+     */
+    @Override
+    public Iterator<T> reverseIterator() {
+        return deque.reverseIterator();
+    }
+
+    @Override
+    public int getSize() {
+        return deque.size();
+    }
+
+    @Override
+    public int getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    @Override
+    public long getPushLeftCount() {
+        return pushLeftCount.sum();
+    }
+
+    @Override
+    public long getPushRightCount() {
+        return pushRightCount.sum();
+    }
+
+    @Override
+    public long getPopLeftCount() {
+        return popLeftCount.sum();
+    }
+
+    @Override
+    public long getPopRightCount() {
+        return popRightCount.sum();
+    }
+
+    @Override
+    public long getPeekLeftCount() {
+        return peekLeftCount.sum();
+    }
+
+    @Override
+    public long getPeekRightCount() {
+        return peekRightCount.sum();
+    }
+
+    @Override
+    public long getFullRejectionCount() {
+        return fullRejections.sum();
+    }
+
+    @Override
+    public long getEmptyRejectionCount() {
+        return emptyRejections.sum();
+    }
+
+    @Override
+    public long getResizeCount() {
+        return resizes.sum();
+    }
+
+    @Override
+    public long[] getPushLatencyHistogram() {
+        return toArray(pushLatency);
+    }
+
+    @Override
+    public long[] getPopLatencyHistogram() {
+        return toArray(popLatency);
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder adder : new LongAdder[] {pushLeftCount, pushRightCount, popLeftCount,
+                popRightCount, peekLeftCount, peekRightCount, fullRejections,
+                emptyRejections, resizes}) {
+            adder.reset();
+        }
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            pushLatency.set(i, 0);
+            popLatency.set(i, 0);
+        }
+        highWaterMark.set(deque.size());
+    }
+
+    private long startTimer() {
+        return trackLatency ? System.nanoTime() : 0;
+    }
+
+    private int allocatedCapacity() {
+        return arrayDeque == null ? 0 : arrayDeque.allocatedCapacity();
+    }
+
+    /**
+     * Counts a failed push as a full rejection if the deque is full; other
+     * failures (e.g. a rejected null) are not counted.
+     */
+    private void countPushFailure() {
+        if (deque.isFull()) {
+            fullRejections.increment();
+        }
+    }
+
+    private void afterPush(int allocatedBefore, long start) {
+        int size = deque.size();
+        int mark = highWaterMark.get();
+        while (size > mark && !highWaterMark.compareAndSet(mark, size)) {
+            mark = highWaterMark.get();
+        }
+        if (allocatedCapacity() != allocatedBefore) {
+            resizes.increment();
+        }
+        record(pushLatency, start);
+    }
+
+    private void afterPop(int allocatedBefore, long start) {
+        if (allocatedCapacity() != allocatedBefore) {
+            resizes.increment();
+        }
+        record(popLatency, start);
+    }
+
+    private void record(AtomicLongArray histogram, long start) {
+        if (trackLatency) {
+            long nanos = System.nanoTime() - start;
+            int bucket = 63 - Long.numberOfLeadingZeros(nanos);
+            histogram.incrementAndGet(Math.max(0, Math.min(bucket, LATENCY_BUCKETS - 1)));
+        }
+    }
+
+    private static long[] toArray(AtomicLongArray histogram) {
+        long[] copy = new long[histogram.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = histogram.get(i);
+        }
+        return copy;
+    }
+
+    /**
+     * Immutable copy of an InstrumentedDeque's statistics. The values are read
+     * one at a time, so under concurrent use they may not be mutually consistent.
+     * The histograms are only handed out as copies.
+     */
+    public static final class Snapshot {
+        public final int size;
+        public final int highWaterMark;
+        public final long pushLeftCount;
+        public final long pushRightCount;
+        public final long popLeftCount;
+        public final long popRightCount;
+        public final long peekLeftCount;
+        public final long peekRightCount;
+        public final long fullRejectionCount;
+        public final long emptyRejectionCount;
+        public final long resizeCount;
+        private final long[] pushLatencyHistogram;
+        private final long[] popLatencyHistogram;
+
+        private Snapshot(InstrumentedDequeMBean stats) {
+            this.size = stats.getSize();
+            this.highWaterMark = stats.getHighWaterMark();
+            this.pushLeftCount = stats.getPushLeftCount();
+            this.pushRightCount = stats.getPushRightCount();
+            this.popLeftCount = stats.getPopLeftCount();
+            this.popRightCount = stats.getPopRightCount();
+            this.peekLeftCount = stats.getPeekLeftCount();
+            this.peekRightCount = stats.getPeekRightCount();
+            this.fullRejectionCount = stats.getFullRejectionCount();
+            this.emptyRejectionCount = stats.getEmptyRejectionCount();
+            this.resizeCount = stats.getResizeCount();
+            this.pushLatencyHistogram = stats.getPushLatencyHistogram();
+            this.popLatencyHistogram = stats.getPopLatencyHistogram();
+        }
+
+        /**
+         * @return a copy of the push latency histogram; bucket i counts
+         * latencies in [2^i, 2^(i+1)) ns
+         */
+        public long[] getPushLatencyHistogram() {
+            return pushLatencyHistogram.clone();
+        }
+
+        /**
+         * @return a copy of the pop and peek latency histogram; bucket i
+         * counts latencies in [2^i, 2^(i+1)) ns
+         */
+        public long[] getPopLatencyHistogram() {
+            return popLatencyHistogram.clone();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * JMX management interface of an InstrumentedDeque.
+ * Every count is cumulative since the deque was wrapped or last reset.
+ */
+public interface InstrumentedDequeMBean {
+    int getSize();
+
+    int getHighWaterMark();
+
+    long getPushLeftCount();
+
+    long getPushRightCount();
+
+    long getPopLeftCount();
+
+    long getPopRightCount();
+
+    long getPeekLeftCount();
+
+    long getPeekRightCount();
+
+    long getFullRejectionCount();
+
+    long getEmptyRejectionCount();
+
+    long getResizeCount();
+
+    /**
+     * @return push latencies, where bucket i counts operations which took
+     * [2^i, 2^(i+1)) nanoseconds (bucket 0 also counts 0ns). All zero unless
+     * latency tracking is enabled.
+     */
+    long[] getPushLatencyHistogram();
+
+    /**
+     * @return pop and peek latencies, bucketed as for getPushLatencyHistogram()
+     */
+    long[] getPopLatencyHistogram();
+
+    /**
+     * Resets every count, the histograms and the high-water mark.
+     */
+    void reset();
+}
@@ -0,0 +1,261 @@
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Circular Deque Array specialised for long elements.
+ * Offers the same operations as SimpleDeque but stores elements in a long[]
+ * ring, so pushes and pops never box or allocate (except when a growable
+ * deque doubles its array).
+ * Memory Complexity: O(size) + O(1) = O(size)
+ */
+public class LongArrayDeque {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAX_ARRAY_LENGTH = 1 << 30;
+
+    // Logical capacity, -1 if the deque grows without bound
+    private int capacity;
+    // arr.length - 1, used to wrap indices
+    private int mask;
+    private long[] arr;
+    private int left;
+    private int right;
+    private int size;
+
+    /**
+     * Constructs a new long deque with unlimited capacity.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     */
+    public LongArrayDeque() {
+        this.capacity = -1;
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new long deque with limited capacity.
+     * Time complexity: O(capacity)
+     * Memory complexity: O(capacity)
+     * @param capacity the capacity
+     * @throws IllegalArgumentException if capacity <= 0
+     */
+    public LongArrayDeque(int capacity) throws IllegalArgumentException {
+        if (capacity <= 0 || capacity > MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+        allocate(capacity);
+    }
+
+    /**
+     * Returns whether the deque is empty.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the deque is empty, otherwise false.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns whether the deque is full. A growable deque is never full.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the deque is full, otherwise false.
+     */
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Returns the number of elements currently stored in the deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return Number of elements.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Pushes an element to the left of the deque.
+     * Time complexity: O(1) (amortised when growable)
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @throws RuntimeException if the deque is already full
+     */
+    public void pushLeft(long e) throws RuntimeException {
+        ensureRoom();
+        left = (left - 1) & mask;
+        arr[left] = e;
+        size++;
+    }
+
+    /**
+     * Pushes an element to the right of the deque.
+     * Time complexity: O(1) (amortised when growable)
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @throws RuntimeException if the deque is already full
+     */
+    public void pushRight(long e) throws RuntimeException {
+        ensureRoom();
+        right = (right + 1) & mask;
+        arr[right] = e;
+        size++;
+    }
+
+    /**
+     * Returns the element at the left of the deque, but does not remove it.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the leftmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public long peekLeft() throws NoSuchElementException {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return arr[left];
+    }
+
+    /**
+     * Returns the element at the right of the deque, but does not remove it.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the rightmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public long peekRight() throws NoSuchElementException {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return arr[right];
+    }
+
+    /**
+     * Removes and returns the element at the left of the deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the leftmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public long popLeft() throws NoSuchElementException {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        long element = arr[left];
+        left = (left + 1) & mask;
+        size--;
+        return element;
+    }
+
+    /**
+     * Removes and returns the element at the right of the deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the rightmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public long popRight() throws NoSuchElementException {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        long element = arr[right];
+        right = (right - 1) & mask;
+        size--;
+        return element;
+    }
+
+    /**
+     * Returns an iterator for the deque in left to right sequence.
+     * Use nextLong() to read elements without boxing.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns an iterator over the elements in in order from leftmost to rightmost.
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            int index = left;
+            int counter = 0;
+
+            @Override
+            public boolean hasNext() {
+                return counter < size;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                long element = arr[index];
+                index = (index + 1) & mask;
+                counter++;
+                return element;
+            }
+        };
+    }
+
+    /**
+     * Returns an iterator for the deque in right to left sequence.
+     * Use nextLong() to read elements without boxing.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns an iterator over the elements in in order from rightmost to leftmost.
+     */
+    public PrimitiveIterator.OfLong reverseIterator() {
+        return new PrimitiveIterator.OfLong() {
+            int index = right;
+            int counter = 0;
+
+            @Override
+            public boolean hasNext() {
+                return counter < size;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                long element = arr[index];
+                index = (index - 1) & mask;
+                counter++;
+                return element;
+            }
+        };
+    }
+
+    private void allocate(int minCapacity) {
+        int length = minCapacity <= 1 ? 1 : Integer.highestOneBit(minCapacity - 1) << 1;
+        this.arr = new long[length];
+        this.mask = length - 1;
+        this.left = 0;
+        this.right = mask;
+        this.size = 0;
+    }
+
+    private void ensureRoom() throws RuntimeException {
+        if (isFull()) {
+            throw new RuntimeException();
+        }
+        if (size == arr.length) {
+            grow();
+        }
+    }
+
+    private void grow() {
+        int length = arr.length;
+        if (length >= MAX_ARRAY_LENGTH) {
+            throw new RuntimeException();
+        }
+        long[] bigger = new long[length << 1];
+        int leftSegment = length - left;
+        System.arraycopy(arr, left, bigger, 0, leftSegment);
+        System.arraycopy(arr, 0, bigger, leftSegment, left);
+        arr = bigger;
+        mask = bigger.length - 1;
+        left = 0;
+        right = size - 1;
+    }
+}
@@ -0,0 +1,462 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Persistent Circular Deque of fixed-width records stored in a memory-mapped file.
+ * The ring and its header live in the file, so reopening the file restores the
+ * deque as it was when its state was last published (see ForcePolicy).
+ *
+ * File layout: a HEADER_BYTES header followed by the record slots. The header
+ * holds the record size, the capacity, the number of slots and a single state
+ * word packing left and size (right is always left + size - 1). The state word
+ * is written with one aligned 8 byte store, and only after the records it
+ * covers have been forced, so the header never points at a record which has
+ * not reached the storage device.
+ *
+ * How often dirty pages are forced to the storage device is controlled by a
+ * ForcePolicy. Under EVERY_OP a crash either keeps or loses the whole last
+ * operation. Under EVERY_N_OPS and ON_CLOSE the state word is only published
+ * when the file is forced, so after a crash the deque reopens as it was at the
+ * last force; slots reused since then may already hold newer records.
+ * Memory Complexity: O(capacity * recordSize) mapped + O(1) on heap
+ */
+public class MappedRecordDeque implements SimpleDeque<ByteBuffer>, Closeable {
+    /**
+     * When to force mapped changes to the storage device.
+     */
+    public enum ForcePolicy {
+        /** Force the touched record and the header after every push or pop. */
+        EVERY_OP,
+        /** Force the whole file after every forceInterval pushes or pops. */
+        EVERY_N_OPS,
+        /** Only force the file when the deque is closed. */
+        ON_CLOSE
+    }
+
+    private static final int MAGIC = 0x53445131;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int RECORD_SIZE_OFFSET = 8;
+    private static final int SLOTS_OFFSET = 12;
+    private static final int STATE_OFFSET = 16;
+    private static final int CAPACITY_OFFSET = 24;
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+    private static final int MAX_SLOTS = 1 << 30;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] chunks;
+    private final int recordSize;
+    private final int capacity;
+    private final int mask;
+    private final int chunkShift;
+    private final int chunkMask;
+    private final ForcePolicy policy;
+    private final int forceInterval;
+    private int opsSinceForce;
+    private boolean closed;
+    private int left;
+    private int right;
+    private int size;
+
+    /**
+     * Opens the deque stored in file, creating it if it does not exist.
+     * An existing file must have been created with the same recordSize and capacity.
+     * Time complexity: O(1) to reopen, O(capacity * recordSize) to create
+     * Memory complexity: O(capacity * recordSize) mapped
+     * @param file the backing file
+     * @param recordSize the number of bytes in each record
+     * @param capacity the capacity in records
+     * @param policy when to force changes to the storage device
+     * @param forceInterval operations between forces for EVERY_N_OPS, otherwise ignored
+     * @throws IllegalArgumentException if the sizes are out of range, forceInterval <= 0
+     *         for EVERY_N_OPS, or an existing file does not match
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public MappedRecordDeque(Path file, int recordSize, int capacity, ForcePolicy policy,
+                             int forceInterval) throws IOException {
+        if (recordSize <= 0 || recordSize > MAX_CHUNK_BYTES
+                || capacity <= 0 || capacity > MAX_SLOTS || policy == null
+                || (policy == ForcePolicy.EVERY_N_OPS && forceInterval <= 0)) {
+            throw new IllegalArgumentException();
+        }
+        this.recordSize = recordSize;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.forceInterval = forceInterval;
+        int slots = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = slots - 1;
+        int perChunk = Math.min(slots, Integer.highestOneBit(MAX_CHUNK_BYTES / recordSize));
+        this.chunkShift = Integer.numberOfTrailingZeros(perChunk);
+        this.chunkMask = perChunk - 1;
+
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean existing = channel.size() > 0;
+            long chunkBytes = (long) perChunk * recordSize;
+            long fileBytes = HEADER_BYTES + (long) slots * recordSize;
+            if (existing && channel.size() != fileBytes) {
+                throw new IllegalArgumentException();
+            }
+            this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            this.chunks = new MappedByteBuffer[slots / perChunk];
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        HEADER_BYTES + i * chunkBytes, chunkBytes);
+            }
+            if (existing) {
+                restore(slots);
+            } else {
+                header.putInt(RECORD_SIZE_OFFSET, recordSize);
+                header.putInt(SLOTS_OFFSET, slots);
+                header.putInt(CAPACITY_OFFSET, capacity);
+                header.putInt(VERSION_OFFSET, VERSION);
+                this.left = 0;
+                this.right = mask;
+                this.size = 0;
+                writeState();
+                // The magic number is written last so a torn create is detected
+                header.putInt(MAGIC_OFFSET, MAGIC);
+                header.force();
+            }
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Opens the deque stored in file with the ForcePolicy.EVERY_OP policy.
+     * @see #MappedRecordDeque(Path, int, int, ForcePolicy, int)
+     */
+    public MappedRecordDeque(Path file, int recordSize, int capacity) throws IOException {
+        this(file, recordSize, capacity, ForcePolicy.EVERY_OP, 1);
+    }
+
+    /**
+     * Returns the number of bytes in each record.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return the record size.
+     */
+    public int recordSize() {
+        return recordSize;
+    }
+
+    /**
+     * Returns whether the deque is empty.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the deque is empty, otherwise false.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns whether the deque is full.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the deque is full, otherwise false.
+     */
+    @Override
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Returns the number of records currently stored in the deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return Number of records.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies recordSize bytes, starting at e.position(), to the left of the
+     * deque. The position of e is not changed.
+     * Time complexity: O(recordSize) plus the cost of the force policy
+     * Memory complexity: O(1)
+     * @param e buffer holding the record to push
+     * @throws IllegalArgumentException if e has fewer than recordSize bytes remaining
+     * @throws IllegalStateException if the deque has been closed
+     * @throws RuntimeException if the deque is already full
+     */
+    @Override
+    public void pushLeft(ByteBuffer e) throws RuntimeException {
+        checkRecord(e);
+        if (isFull()) {
+            throw new RuntimeException();
+        }
+        int slot = (left - 1) & mask;
+        write(slot, e);
+        left = slot;
+        size++;
+        commit(slot);
+    }
+
+    /**
+     * Copies recordSize bytes, starting at e.position(), to the right of the
+     * deque. The position of e is not changed.
+     * Time complexity: O(recordSize) plus the cost of the force policy
+     * Memory complexity: O(1)
+     * @param e buffer holding the record to push
+     * @throws IllegalArgumentException if e has fewer than recordSize bytes remaining
+     * @throws IllegalStateException if the deque has been closed
+     * @throws RuntimeException if the deque is already full
+     */
+    @Override
+    public void pushRight(ByteBuffer e) throws RuntimeException {
+        checkRecord(e);
+        if (isFull()) {
+            throw new RuntimeException();
+        }
+        int slot = (right + 1) & mask;
+        write(slot, e);
+        right = slot;
+        size++;
+        commit(slot);
+    }
+
+    /**
+     * Returns a view of the record at the left of the deque, but does not remove it.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns a view of the leftmost record
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public ByteBuffer peekLeft() throws NoSuchElementException {
+        checkOpen();
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return view(left);
+    }
+
+    /**
+     * Returns a view of the record at the right of the deque, but does not remove it.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns a view of the rightmost record
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public ByteBuffer peekRight() throws NoSuchElementException {
+        checkOpen();
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return view(right);
+    }
+
+    /**
+     * Removes the record at the left of the deque and returns a view of it.
+     * The view is valid until the next push.
+     * Time complexity: O(1) plus the cost of the force policy
+     * Memory complexity: O(1)
+     * @returns a view of the leftmost record
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public ByteBuffer popLeft() throws NoSuchElementException {
+        ByteBuffer element = peekLeft();
+        left = (left + 1) & mask;
+        size--;
+        commit(-1);
+        return element;
+    }
+
+    /**
+     * Removes the record at the right of the deque and returns a view of it.
+     * The view is valid until the next push.
+     * Time complexity: O(1) plus the cost of the force policy
+     * Memory complexity: O(1)
+     * @returns a view of the rightmost record
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public ByteBuffer popRight() throws NoSuchElementException {
+        ByteBuffer element = peekRight();
+        right = (right - 1) & mask;
+        size--;
+        commit(-1);
+        return element;
+    }
+
+    /**
+     * Returns an iterator of record views in left to right sequence.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns an iterator over the records in order from leftmost to rightmost.
+     */
+    @Override
+    public Iterator<ByteBuffer> iterator() {
+        checkOpen();
+        return new Iterator<ByteBuffer>() {
+            int index = left;
+            int counter = 0;
+
+            @Override
+            public boolean hasNext() {
+                return counter < size;
+            }
+
+            @Override
+            public ByteBuffer next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ByteBuffer element = view(index);
+                index = (index + 1) & mask;
+                counter++;
+                return element;
+            }
+        };
+    }
+
+    /**
+     * Returns an iterator of record views in right to left sequence.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns an iterator over the records in order from rightmost to leftmost.
+     */
+    @Override
+    public Iterator<ByteBuffer> reverseIterator() {
+        checkOpen();
+        return new Iterator<ByteBuffer>() {
+            int index = right;
+            int counter = 0;
+
+            @Override
+            public boolean hasNext() {
+                return counter < size;
+            }
+
+            @Override
+            public ByteBuffer next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ByteBuffer element = view(index);
+                index = (index - 1) & mask;
+                counter++;
+                return element;
+            }
+        };
+    }
+
+    /**
+     * Forces every mapped change to the storage device, records first and then
+     * the header which publishes them.
+     * Time complexity: O(dirty pages)
+     * Memory complexity: O(1)
+     * @throws IllegalStateException if the deque has been closed
+     */
+    public void force() {
+        checkOpen();
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        writeState();
+        header.force();
+        opsSinceForce = 0;
+    }
+
+    /**
+     * Forces outstanding changes and closes the backing file. Further operations
+     * throw IllegalStateException.
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        force();
+        closed = true;
+        channel.close();
+    }
+
+    private void restore(int slots) {
+        if (header.getInt(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION
+                || header.getInt(RECORD_SIZE_OFFSET) != recordSize
+                || header.getInt(SLOTS_OFFSET) != slots
+                || header.getInt(CAPACITY_OFFSET) != capacity) {
+            throw new IllegalArgumentException();
+        }
+        long state = header.getLong(STATE_OFFSET);
+        int storedLeft = (int) (state >>> 32);
+        int storedSize = (int) state;
+        if (storedLeft < 0 || storedLeft > mask || storedSize < 0 || storedSize > capacity) {
+            throw new IllegalArgumentException();
+        }
+        this.left = storedLeft;
+        this.size = storedSize;
+        this.right = (left + size - 1) & mask;
+    }
+
+    /**
+     * Applies the force policy after an operation. The new left/size is only
+     * written to the header once the record it covers has been forced, since
+     * the OS may write back a dirty header page at any moment.
+     * @param slot the slot written by the operation, or -1 for a pop
+     */
+    private void commit(int slot) {
+        switch (policy) {
+            case EVERY_OP:
+                if (slot >= 0) {
+                    chunks[slot >>> chunkShift].force((slot & chunkMask) * recordSize, recordSize);
+                }
+                writeState();
+                header.force(STATE_OFFSET, Long.BYTES);
+                break;
+            case EVERY_N_OPS:
+                if (++opsSinceForce >= forceInterval) {
+                    force();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void writeState() {
+        header.putLong(STATE_OFFSET, ((long) left << 32) | (size & 0xFFFFFFFFL));
+    }
+
+    private void checkOpen() throws IllegalStateException {
+        if (closed) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private void checkRecord(ByteBuffer e) throws IllegalArgumentException {
+        checkOpen();
+        if (e == null || e.remaining() < recordSize) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    private void write(int slot, ByteBuffer e) {
+        chunks[slot >>> chunkShift].put((slot & chunkMask) * recordSize, e, e.position(), recordSize);
+    }
+
+    private ByteBuffer view(int slot) {
+        return chunks[slot >>> chunkShift].slice((slot & chunkMask) * recordSize, recordSize);
+    }
+}
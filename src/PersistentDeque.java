@@ -0,0 +1,351 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable deque (a banker's deque of two persistent linked lists).
+ *
+ * Every push or pop returns a new version and leaves the old one untouched;
+ * the versions share all the Nodes they have in common, so a new version costs
+ * O(1) memory rather than a copy. Since a version never changes, it can be
+ * handed to readers on other threads and iterated without locks or copies.
+ *
+ * The left half of the elements is kept in front (leftmost first) and the
+ * right half in rear (rightmost first). Whenever there are two or more
+ * elements both lists are non-empty, so both ends can be peeked in O(1). When
+ * a pop empties one list, the other is split in half between them, which costs
+ * O(size) but leaves O(size) pops before the next split, so a sequence of
+ * operations on the latest version is amortised O(1). Repeatedly popping the
+ * same old version can pay for the split every time.
+ * Memory Complexity: O(size) + O(1) = O(size), shared between versions
+ * @param <T> The type of array elements.
+ */
+public final class PersistentDeque<T> implements Iterable<T> {
+    private static final PersistentDeque<?> EMPTY = new PersistentDeque<>(null, 0, null, 0);
+
+    private final Node<T> front;
+    private final int frontSize;
+    private final Node<T> rear;
+    private final int rearSize;
+
+    private PersistentDeque(Node<T> front, int frontSize, Node<T> rear, int rearSize) {
+        this.front = front;
+        this.frontSize = frontSize;
+        this.rear = rear;
+        this.rearSize = rearSize;
+    }
+
+    /**
+     * Returns the empty deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return an empty deque
+     */
+    public static <T> PersistentDeque<T> empty() {
+        return (PersistentDeque<T>) EMPTY;
+    }
+
+    /**
+     * Returns a deque holding the elements of a SimpleDeque, in the same order.
+     * Time complexity: O(deque.size)
+     * Memory complexity: O(deque.size)
+     * @param deque the deque to copy elements from. deque is left intact.
+     * @return a deque with the same elements
+     * @requires deque != null
+     */
+    public static <T> PersistentDeque<T> of(SimpleDeque<? extends T> deque) {
+        Object[] elements = new Object[deque.size()];
+        Iterator<? extends T> it = deque.iterator();
+        int n = 0;
+        while (it.hasNext()) {
+            elements[n++] = it.next();
+        }
+        return balanced(elements, n);
+    }
+
+    /**
+     * Returns whether the deque is empty.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the deque is empty, otherwise false.
+     */
+    public boolean isEmpty() {
+        return frontSize + rearSize == 0;
+    }
+
+    /**
+     * Returns the number of elements in the deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return Number of elements.
+     */
+    public int size() {
+        return frontSize + rearSize;
+    }
+
+    /**
+     * Returns a version of the deque with an element added to the left.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @return the new version
+     */
+    public PersistentDeque<T> pushLeft(T e) {
+        if (rear == null && front != null) {
+            // Move the single existing element across so both lists are non-empty
+            return new PersistentDeque<>(new Node<>(e, null), 1, front, 1);
+        }
+        return new PersistentDeque<>(new Node<>(e, front), frontSize + 1, rear, rearSize);
+    }
+
+    /**
+     * Returns a version of the deque with an element added to the right.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @return the new version
+     */
+    public PersistentDeque<T> pushRight(T e) {
+        if (front == null && rear != null) {
+            return new PersistentDeque<>(rear, 1, new Node<>(e, null), 1);
+        }
+        return new PersistentDeque<>(front, frontSize, new Node<>(e, rear), rearSize + 1);
+    }
+
+    /**
+     * Returns the element at the left of the deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the leftmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public T peekLeft() throws NoSuchElementException {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        // With a single element it may be in either list
+        return front != null ? front.element : rear.element;
+    }
+
+    /**
+     * Returns the element at the right of the deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the rightmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public T peekRight() throws NoSuchElementException {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return rear != null ? rear.element : front.element;
+    }
+
+    /**
+     * Returns a version of the deque without its leftmost element.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1) amortised
+     * @return the new version
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public PersistentDeque<T> popLeft() throws NoSuchElementException {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        if (front == null) {
+            return empty();
+        }
+        return rebalance(front.next, frontSize - 1, rear, rearSize);
+    }
+
+    /**
+     * Returns a version of the deque without its rightmost element.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1) amortised
+     * @return the new version
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public PersistentDeque<T> popRight() throws NoSuchElementException {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        if (rear == null) {
+            return empty();
+        }
+        return rebalance(front, frontSize, rear.next, rearSize - 1);
+    }
+
+    /**
+     * Returns an iterator for the deque in left to right sequence.
+     * Time complexity: O(1) amortised (for each call to next()), the first
+     * call past the front list costs O(size)
+     * Memory complexity: O(sqrt(size))
+     * @returns an iterator over the elements in in order from leftmost to rightmost.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new VersionIterator(front, rear, rearSize);
+    }
+
+    /**
+     * Returns an iterator for the deque in right to left sequence.
+     * Time complexity: O(1) amortised (for each call to next()), the first
+     * call past the rear list costs O(size)
+     * Memory complexity: O(sqrt(size))
+     * @returns an iterator over the elements in in order from rightmost to leftmost.
+     */
+    public Iterator<T> reverseIterator() {
+        return new VersionIterator(rear, front, frontSize);
+    }
+
+    /**
+     * Builds a version from its two lists, splitting the other list in half if
+     * one has become empty while two or more elements remain.
+     */
+    private static <T> PersistentDeque<T> rebalance(Node<T> front, int frontSize,
+                                                    Node<T> rear, int rearSize) {
+        int size = frontSize + rearSize;
+        if (size == 0) {
+            return empty();
+        }
+        if (size == 1 || (frontSize > 0 && rearSize > 0)) {
+            return new PersistentDeque<>(front, frontSize, rear, rearSize);
+        }
+        Object[] elements = new Object[size];
+        if (frontSize > 0) {
+            fill(elements, front, 0, 1);
+        } else {
+            fill(elements, rear, size - 1, -1);
+        }
+        return balanced(elements, size);
+    }
+
+    /**
+     * Builds a version holding elements[0..n) in order, half in each list.
+     */
+    private static <T> PersistentDeque<T> balanced(Object[] elements, int n) {
+        int half = n / 2;
+        Node<T> front = null;
+        for (int i = half - 1; i >= 0; i--) {
+            front = new Node<>((T) elements[i], front);
+        }
+        Node<T> rear = null;
+        for (int i = half; i < n; i++) {
+            rear = new Node<>((T) elements[i], rear);
+        }
+        return new PersistentDeque<>(front, half, rear, n - half);
+    }
+
+    /**
+     * Copies a list into elements, starting at index start and moving by step.
+     */
+    private static <T> void fill(Object[] elements, Node<T> list, int start, int step) {
+        for (int i = start; list != null; i += step) {
+            elements[i] = list.element;
+            list = list.next;
+        }
+    }
+
+    private static final class Node<T> {
+        final T element;
+        final Node<T> next;
+
+        private Node(T element, Node<T> next) {
+            this.element = element;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Walks the near list directly, then the far list, which is in the
+     * opposite order. The far list is only touched once the near list runs
+     * out: one pass records every stride-th Node of it (stride being about
+     * sqrt(farSize)), then the segments between those checkpoints are visited
+     * last to first, each walked into a stride-sized buffer and returned
+     * backwards. That walks the far list twice in total while holding
+     * O(sqrt(farSize)) Nodes rather than a copy of the whole list.
+     */
+    private class VersionIterator implements Iterator<T> {
+        private Node<T> near;
+        private Node<T> far;
+        private final int farSize;
+        // Every stride-th Node of far, filled when the near list runs out
+        private Node<T>[] checkpoints;
+        private int stride;
+        // Index in checkpoints of the segment being returned
+        private int segment;
+        // The elements of that segment, returned from segmentLength - 1 down to 0
+        private Object[] buffer;
+        private int bufferIndex;
+
+        private VersionIterator(Node<T> near, Node<T> far, int farSize) {
+            this.near = near;
+            this.far = far;
+            this.farSize = farSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return near != null || far != null || bufferIndex > 0 || segment > 0;
+        }
+
+        @Override
+        public T next() {
+            if (near != null) {
+                T element = near.element;
+                near = near.next;
+                return element;
+            }
+            if (far != null) {
+                mark();
+            }
+            if (bufferIndex == 0) {
+                if (segment == 0) {
+                    throw new NoSuchElementException();
+                }
+                load(--segment);
+            }
+            T element = (T) buffer[--bufferIndex];
+            buffer[bufferIndex] = null;
+            return element;
+        }
+
+        /**
+         * Records the checkpoints of the far list and drops the reference to
+         * it, so that it is only marked once.
+         */
+        private void mark() {
+            stride = Math.max(1, (int) Math.ceil(Math.sqrt(farSize)));
+            int count = (farSize + stride - 1) / stride;
+            // Generic arrays cannot be created directly; every element is a Node<T>
+            @SuppressWarnings("unchecked")
+            Node<T>[] array = (Node<T>[]) new Node<?>[count];
+            Node<T> node = far;
+            for (int i = 0; node != null; i++) {
+                if (i % stride == 0) {
+                    array[i / stride] = node;
+                }
+                node = node.next;
+            }
+            checkpoints = array;
+            buffer = new Object[stride];
+            segment = count;
+            far = null;
+        }
+
+        /**
+         * Copies the Nodes from checkpoints[index] up to the next checkpoint
+         * into the buffer.
+         */
+        private void load(int index) {
+            int length = Math.min(stride, farSize - index * stride);
+            Node<T> node = checkpoints[index];
+            // The checkpoint is not needed again once its segment is loaded
+            checkpoints[index] = null;
+            for (int i = 0; i < length; i++) {
+                buffer[i] = node.element;
+                node = node.next;
+            }
+            bufferIndex = length;
+        }
+    }
+}
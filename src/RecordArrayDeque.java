@@ -0,0 +1,308 @@
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Circular Deque of fixed-width records stored off the Java heap.
+ * Each element is a record of recordSize bytes held in a ring of direct
+ * ByteBuffers. Pushing copies the record into the ring; peeking and popping
+ * return a view onto the record in place, so no record bytes are copied on
+ * the way out.
+ * A view is only valid until the slot it points to is reused, i.e. the view
+ * returned by a pop is invalidated by the next push.
+ * Memory Complexity: O(capacity * recordSize) off heap + O(1) on heap
+ */
+public class RecordArrayDeque implements SimpleDeque<ByteBuffer> {
+    // Upper bound on the bytes held by a single direct buffer
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+    private static final int MAX_SLOTS = 1 << 30;
+
+    private final int recordSize;
+    private final int capacity;
+    // Number of slots - 1, used to wrap indices
+    private final int mask;
+    // A slot lives in chunks[slot >>> chunkShift] at record (slot & chunkMask)
+    private final int chunkShift;
+    private final int chunkMask;
+    private final ByteBuffer[] chunks;
+    private int left;
+    private int right;
+    private int size;
+
+    /**
+     * Constructs a new off-heap record deque with limited capacity.
+     * Time complexity: O(capacity * recordSize) (the direct memory is zeroed)
+     * Memory complexity: O(capacity * recordSize)
+     * @param recordSize the number of bytes in each record
+     * @param capacity the capacity in records
+     * @throws IllegalArgumentException if recordSize <= 0, capacity <= 0 or
+     *         recordSize is larger than a single chunk
+     */
+    public RecordArrayDeque(int recordSize, int capacity) throws IllegalArgumentException {
+        if (recordSize <= 0 || recordSize > MAX_CHUNK_BYTES
+                || capacity <= 0 || capacity > MAX_SLOTS) {
+            throw new IllegalArgumentException();
+        }
+        this.recordSize = recordSize;
+        this.capacity = capacity;
+        int slots = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = slots - 1;
+        int perChunk = Math.min(slots, Integer.highestOneBit(MAX_CHUNK_BYTES / recordSize));
+        this.chunkShift = Integer.numberOfTrailingZeros(perChunk);
+        this.chunkMask = perChunk - 1;
+        this.chunks = new ByteBuffer[slots / perChunk];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = ByteBuffer.allocateDirect(perChunk * recordSize);
+        }
+        this.left = 0;
+        this.right = mask;
+        this.size = 0;
+    }
+
+    /**
+     * Returns the number of bytes in each record.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return the record size.
+     */
+    public int recordSize() {
+        return recordSize;
+    }
+
+    /**
+     * Returns whether the deque is empty.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the deque is empty, otherwise false.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns whether the deque is full.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the deque is full, otherwise false.
+     */
+    @Override
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Returns the number of records currently stored in the deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return Number of records.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies recordSize bytes, starting at e.position(), to the left of the
+     * deque. The position of e is not changed.
+     * Time complexity: O(recordSize)
+     * Memory complexity: O(1)
+     * @param e buffer holding the record to push
+     * @throws IllegalArgumentException if e has fewer than recordSize bytes remaining
+     * @throws RuntimeException if the deque is already full
+     */
+    @Override
+    public void pushLeft(ByteBuffer e) throws RuntimeException {
+        checkRecord(e);
+        if (isFull()) {
+            throw new RuntimeException();
+        }
+        left = (left - 1) & mask;
+        write(left, e);
+        size++;
+    }
+
+    /**
+     * Copies recordSize bytes, starting at e.position(), to the right of the
+     * deque. The position of e is not changed.
+     * Time complexity: O(recordSize)
+     * Memory complexity: O(1)
+     * @param e buffer holding the record to push
+     * @throws IllegalArgumentException if e has fewer than recordSize bytes remaining
+     * @throws RuntimeException if the deque is already full
+     */
+    @Override
+    public void pushRight(ByteBuffer e) throws RuntimeException {
+        checkRecord(e);
+        if (isFull()) {
+            throw new RuntimeException();
+        }
+        right = (right + 1) & mask;
+        write(right, e);
+        size++;
+    }
+
+    /**
+     * Returns a view of the record at the left of the deque, but does not remove it.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns a view of the leftmost record
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public ByteBuffer peekLeft() throws NoSuchElementException {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return view(left);
+    }
+
+    /**
+     * Returns a view of the record at the right of the deque, but does not remove it.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns a view of the rightmost record
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public ByteBuffer peekRight() throws NoSuchElementException {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return view(right);
+    }
+
+    /**
+     * Removes the record at the left of the deque and returns a view of it.
+     * The view is valid until the next push.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns a view of the leftmost record
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public ByteBuffer popLeft() throws NoSuchElementException {
+        ByteBuffer element = peekLeft();
+        left = (left + 1) & mask;
+        size--;
+        return element;
+    }
+
+    /**
+     * Removes the record at the right of the deque and returns a view of it.
+     * The view is valid until the next push.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns a view of the rightmost record
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public ByteBuffer popRight() throws NoSuchElementException {
+        ByteBuffer element = peekRight();
+        right = (right - 1) & mask;
+        size--;
+        return element;
+    }
+
+    /**
+     * Removes the record at the left of the deque, copying it into dest at
+     * dest.position() and advancing the position by recordSize.
+     * Time complexity: O(recordSize)
+     * Memory complexity: O(1)
+     * @param dest buffer to copy the record into
+     * @throws IllegalArgumentException if dest has fewer than recordSize bytes remaining
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public void popLeft(ByteBuffer dest) throws NoSuchElementException {
+        checkRecord(dest);
+        dest.put(popLeft());
+    }
+
+    /**
+     * Removes the record at the right of the deque, copying it into dest at
+     * dest.position() and advancing the position by recordSize.
+     * Time complexity: O(recordSize)
+     * Memory complexity: O(1)
+     * @param dest buffer to copy the record into
+     * @throws IllegalArgumentException if dest has fewer than recordSize bytes remaining
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public void popRight(ByteBuffer dest) throws NoSuchElementException {
+        checkRecord(dest);
+        dest.put(popRight());
+    }
+
+    /**
+     * Returns an iterator of record views in left to right sequence.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns an iterator over the records in order from leftmost to rightmost.
+     */
+    @Override
+    public Iterator<ByteBuffer> iterator() {
+        return new Iterator<ByteBuffer>() {
+            int index = left;
+            int counter = 0;
+
+            @Override
+            public boolean hasNext() {
+                return counter < size;
+            }
+
+            @Override
+            public ByteBuffer next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ByteBuffer element = view(index);
+                index = (index + 1) & mask;
+                counter++;
+                return element;
+            }
+        };
+    }
+
+    /**
+     * Returns an iterator of record views in right to left sequence.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns an iterator over the records in order from rightmost to leftmost.
+     */
+    @Override
+    public Iterator<ByteBuffer> reverseIterator() {
+        return new Iterator<ByteBuffer>() {
+            int index = right;
+            int counter = 0;
+
+            @Override
+            public boolean hasNext() {
+                return counter < size;
+            }
+
+            @Override
+            public ByteBuffer next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ByteBuffer element = view(index);
+                index = (index - 1) & mask;
+                counter++;
+                return element;
+            }
+        };
+    }
+
+    private void checkRecord(ByteBuffer e) throws IllegalArgumentException {
+        if (e == null || e.remaining() < recordSize) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    private void write(int slot, ByteBuffer e) {
+        chunks[slot >>> chunkShift].put((slot & chunkMask) * recordSize, e, e.position(), recordSize);
+    }
+
+    private ByteBuffer view(int slot) {
+        return chunks[slot >>> chunkShift].slice((slot & chunkMask) * recordSize, recordSize);
+    }
+}
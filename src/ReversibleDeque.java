@@ -1,8 +1,11 @@
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 
 public class ReversibleDeque<T> implements SimpleDeque<T> {
     SimpleDeque<T> deque;
+    // When true the left of this deque is the right of the data deque
+    private boolean reversed;
 
     /**
      * Constructs a new reversible deque, using the given data deque to store
@@ -19,21 +22,13 @@ public class ReversibleDeque<T> implements SimpleDeque<T> {
 
     /**
      * Reverses the order of the elements in the deque.
+     * No elements are moved: the left and right operations of the data deque
+     * simply swap roles.
      * Time complexity: O(1)
      * Memory complexity: O(1)
      */
     public void reverse() {
-        T[] arr = (T[]) new Object[deque.size()];
-        int counter = 0;
-        // Remove and store elements from the array
-        while (deque.size() > 0) {
-            arr[counter] = deque.popRight();
-            counter++;
-        }
-        // Add elements into the array through the right
-        for (T element : arr) {
-            deque.pushRight(element);
-        }
+        reversed = !reversed;
     }
 
     /**
@@ -78,7 +73,11 @@ public class ReversibleDeque<T> implements SimpleDeque<T> {
      */
     @Override
     public void pushLeft(T e) throws RuntimeException {
-        deque.pushLeft(e);
+        if (reversed) {
+            deque.pushRight(e);
+        } else {
+            deque.pushLeft(e);
+        }
     }
 
     /**
@@ -90,7 +89,11 @@ public class ReversibleDeque<T> implements SimpleDeque<T> {
      */
     @Override
     public void pushRight(T e) throws RuntimeException {
-        deque.pushRight(e);
+        if (reversed) {
+            deque.pushLeft(e);
+        } else {
+            deque.pushRight(e);
+        }
     }
 
     /**
@@ -102,7 +105,7 @@ public class ReversibleDeque<T> implements SimpleDeque<T> {
      */
     @Override
     public T peekLeft() throws NoSuchElementException {
-        return deque.peekLeft();
+        return reversed ? deque.peekRight() : deque.peekLeft();
     }
 
     /**
@@ -114,7 +117,7 @@ public class ReversibleDeque<T> implements SimpleDeque<T> {
      */
     @Override
     public T peekRight() throws NoSuchElementException {
-        return deque.peekRight();
+        return reversed ? deque.peekLeft() : deque.peekRight();
     }
 
     /**
@@ -126,7 +129,7 @@ public class ReversibleDeque<T> implements SimpleDeque<T> {
      */
     @Override
     public T popLeft() throws NoSuchElementException {
-        return deque.popLeft();
+        return reversed ? deque.popRight() : deque.popLeft();
     }
 
     /**
@@ -138,7 +141,7 @@ public class ReversibleDeque<T> implements SimpleDeque<T> {
      */
     @Override
     public T popRight() throws NoSuchElementException {
-        return deque.popRight();
+        return reversed ? deque.popLeft() : deque.popRight();
     }
 
     /**
@@ -149,7 +152,7 @@ public class ReversibleDeque<T> implements SimpleDeque<T> {
      */
     @Override
     public Iterator<T> iterator() {
-        return deque.iterator();
+        return reversed ? deque.reverseIterator() : deque.iterator();
     }
 
     /**
@@ -160,6 +163,129 @@ public class ReversibleDeque<T> implements SimpleDeque<T> {
      */
     @Override
     public Iterator<T> reverseIterator() {
-        return deque.reverseIterator();
+        return reversed ? deque.iterator() : deque.reverseIterator();
+    }
+
+    /**
+     * Pushes every element of an array to the left of the deque, keeping their
+     * array order. Uses the bulk operation on the matching end of the data
+     * deque; when reversed that is its right end, given the elements in
+     * reverse order.
+     * Time complexity: Dependent on implementation (at most O(elements.length))
+     * Memory complexity: O(1), or O(elements.length) when reversed
+     * @param elements Elements to push
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    @Override
+    public void pushAllLeft(T[] elements) throws RuntimeException {
+        if (reversed) {
+            deque.pushAllRight(reversedCopy(elements));
+        } else {
+            deque.pushAllLeft(elements);
+        }
+    }
+
+    /**
+     * Pushes every element of an array to the right of the deque, keeping their
+     * array order. Uses the bulk operation on the matching end of the data
+     * deque; when reversed that is its left end, given the elements in
+     * reverse order.
+     * Time complexity: Dependent on implementation (at most O(elements.length))
+     * Memory complexity: O(1), or O(elements.length) when reversed
+     * @param elements Elements to push
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    @Override
+    public void pushAllRight(T[] elements) throws RuntimeException {
+        if (reversed) {
+            deque.pushAllLeft(reversedCopy(elements));
+        } else {
+            deque.pushAllRight(elements);
+        }
+    }
+
+    /**
+     * Pushes every element of another deque to the left of this deque, keeping
+     * their order. Uses the bulk operation on the matching end of the data
+     * deque; when reversed it is given a reversed view of other.
+     * Time complexity: Dependent on implementation (at most O(other.size))
+     * Memory complexity: O(1)
+     * @param other Deque to copy elements from
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    @Override
+    public void pushAllLeft(SimpleDeque<? extends T> other) throws RuntimeException {
+        if (reversed) {
+            deque.pushAllRight(reversedView(other));
+        } else {
+            deque.pushAllLeft(other);
+        }
+    }
+
+    /**
+     * Pushes every element of another deque to the right of this deque, keeping
+     * their order. Uses the bulk operation on the matching end of the data
+     * deque; when reversed it is given a reversed view of other.
+     * Time complexity: Dependent on implementation (at most O(other.size))
+     * Memory complexity: O(1)
+     * @param other Deque to copy elements from
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    @Override
+    public void pushAllRight(SimpleDeque<? extends T> other) throws RuntimeException {
+        if (reversed) {
+            deque.pushAllLeft(reversedView(other));
+        } else {
+            deque.pushAllRight(other);
+        }
+    }
+
+    /**
+     * Removes up to n elements from the left of the deque into dest. Uses the
+     * bulk operation of the data deque unless reversed.
+     * Time complexity: Dependent on implementation (at most O(n))
+     * Memory complexity: O(1)
+     * @param n Maximum number of elements to remove
+     * @param dest Array to store the removed elements in
+     * @returns the number of elements removed
+     * @throws IllegalArgumentException if n < 0 or n > dest.length
+     */
+    @Override
+    public int popLeft(int n, T[] dest) throws IllegalArgumentException {
+        if (reversed) {
+            return SimpleDeque.super.popLeft(n, dest);
+        }
+        return deque.popLeft(n, dest);
+    }
+
+    /**
+     * Returns a spliterator over the elements in left to right sequence. Uses
+     * the spliterator of the data deque unless reversed.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns a spliterator over the elements in order from leftmost to rightmost.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return reversed ? SimpleDeque.super.spliterator() : deque.spliterator();
+    }
+
+    private static <T> T[] reversedCopy(T[] elements) {
+        T[] copy = elements.clone();
+        for (int i = 0, j = copy.length - 1; i < j; i++, j--) {
+            T temp = copy[i];
+            copy[i] = copy[j];
+            copy[j] = temp;
+        }
+        return copy;
+    }
+
+    /**
+     * Returns other seen from right to left, without copying it.
+     */
+    private static <T> SimpleDeque<T> reversedView(SimpleDeque<? extends T> other) {
+        ReversibleDeque<T> view = new ReversibleDeque<>((SimpleDeque<T>) other);
+        view.reverse();
+        return view;
     }
 }
@@ -1,20 +1,46 @@
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /**
  * Circular Deque Array
+ * The backing array always has a power of two length so that every index step
+ * can be wrapped with a bitmask instead of a division.
  * Memory Complexity: O(size) + O(1) = O(size)
  * @param <T> The type of array elements.
  */
 public class SimpleArrayDeque<T> implements SimpleDeque<T> {
-    private int wrapper;
-    private int maxIndex;
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAX_ARRAY_LENGTH = 1 << 30;
+
+    // Logical capacity, -1 if the deque grows without bound
     private int capacity;
+    // arr.length - 1, used to wrap indices
+    private int mask;
     private T[] arr;
     private int left;
     private int right;
     private int size;
+    // Ring log mode: a push to a full deque evicts from the opposite end
+    private boolean overwrite;
+    private Consumer<? super T> evictionListener;
+    private long evictions;
+    // Smallest array length automatic shrinking goes down to, 0 if disabled
+    private int shrinkFloor;
+
+    /**
+     * Constructs a new array based deque with unlimited capacity. The backing
+     * array is doubled whenever it runs out of room.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     */
+    public SimpleArrayDeque() {
+        this.capacity = -1;
+        allocate(DEFAULT_CAPACITY);
+    }
 
     /**
      * Constructs a new array based deque with limited capacity.
@@ -24,21 +50,26 @@ public class SimpleArrayDeque<T> implements SimpleDeque<T> {
      * @throws IllegalArgumentException if capacity <= 0
      */
     public SimpleArrayDeque(int capacity) throws IllegalArgumentException {
-        if (capacity <= 0) {
+        if (capacity <= 0 || capacity > MAX_ARRAY_LENGTH) {
             throw new IllegalArgumentException();
         }
-        this.maxIndex = capacity - 1;
-        // Handle division by 0.
-        if (maxIndex == 0) {
-            wrapper = 1;
-        } else {
-            wrapper = maxIndex;
-        }
         this.capacity = capacity;
-        this.arr = (T[]) new Object[capacity];
-        this.left = 0;
-        this.right = -1;
-        this.size = 0;
+        allocate(capacity);
+    }
+
+    /**
+     * Constructs a new array based deque with unlimited capacity, and initially
+     * populates the deque with the elements of another SimpleDeque.
+     * Time complexity: O(otherDeque.size) (two System.arraycopy calls when
+     * otherDeque is a SimpleArrayDeque, otherwise one pass of its iterator)
+     * Memory complexity: O(otherDeque.size)
+     * @param otherDeque the other deque to copy elements from. otherDeque should be left intact.
+     * @requires otherDeque != null
+     */
+    public SimpleArrayDeque(SimpleDeque<? extends T> otherDeque) {
+        this.capacity = -1;
+        allocate(Math.max(otherDeque.size(), DEFAULT_CAPACITY));
+        copyFrom(otherDeque);
     }
 
     /**
@@ -50,29 +81,103 @@ public class SimpleArrayDeque<T> implements SimpleDeque<T> {
      * @param capacity the capacity
      * @throws IllegalArgumentException if capacity <= 0 or size of otherDeque is > capacity
      */
-    public SimpleArrayDeque(int capacity, SimpleDeque<? extends T> otherDeque) 
+    public SimpleArrayDeque(int capacity, SimpleDeque<? extends T> otherDeque)
             throws IllegalArgumentException {
-        if ((capacity <= 0) || otherDeque.size() > capacity) {
+        if ((capacity <= 0) || capacity > MAX_ARRAY_LENGTH || otherDeque.size() > capacity) {
             throw new IllegalArgumentException();
         }
         this.capacity = capacity;
-        maxIndex = capacity - 1;
-        if (maxIndex == 0) {
-            wrapper = 1;
-        } else {
-            wrapper = maxIndex;
+        allocate(capacity);
+        copyFrom(otherDeque);
+    }
+
+    /**
+     * Returns whether this deque grows on demand rather than rejecting pushes
+     * once full.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return True if the deque has unlimited capacity.
+     */
+    public boolean isGrowable() {
+        return capacity < 0;
+    }
+
+    /**
+     * Returns the length of the backing array, i.e. how many elements fit
+     * before a growable deque has to resize.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return Number of allocated slots.
+     */
+    public int allocatedCapacity() {
+        return arr.length;
+    }
+
+    /**
+     * Turns overwrite ("ring log") mode on or off. In overwrite mode, pushing
+     * to a full deque evicts the element at the opposite end instead of
+     * throwing, so the deque keeps the most recent capacity elements. Only
+     * single-element pushes overwrite; bulk pushes still need room for every
+     * element. A growable deque is never full, so the mode has no effect on it.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param overwrite whether full pushes should evict
+     */
+    public void setOverwriteWhenFull(boolean overwrite) {
+        this.overwrite = overwrite;
+    }
+
+    /**
+     * Sets a callback which is given each element evicted in overwrite mode.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param listener the callback, or null for none
+     */
+    public void setEvictionListener(Consumer<? super T> listener) {
+        this.evictionListener = listener;
+    }
+
+    /**
+     * Returns how many elements have been evicted in overwrite mode.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return Number of evictions.
+     */
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Turns on automatic shrinking of a growable deque's backing array. After
+     * a pop leaves the deque less than a quarter full, the array is compacted
+     * into one at least twice the remaining size (but no smaller than
+     * minLength). Since the deque is then at most half full, it has to double
+     * before it grows again, so a size hovering around a threshold does not
+     * keep resizing. A limit of 0 turns shrinking off. Fixed-capacity deques
+     * never shrink.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param minLength the smallest backing array length to shrink to (rounded up to a power of two)
+     * @throws IllegalArgumentException if minLength < 0
+     */
+    public void setAutoShrink(int minLength) throws IllegalArgumentException {
+        if (minLength < 0 || minLength > MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException();
         }
-        this.arr = (T[]) new Object[capacity];
-        this.left = 0;
-        int counter = 0;
-        // Iterate through otherDeque and retrieve elements
-        Iterator it = otherDeque.iterator();
-        while (counter < capacity) {
-            arr[counter] = (T) it.next();
-            counter++;
+        this.shrinkFloor = minLength == 0 ? 0 : roundUpToPowerOfTwo(minLength);
+    }
+
+    /**
+     * Shrinks a growable deque's backing array to the smallest power of two
+     * length which holds its elements. Has no effect on a fixed-capacity deque.
+     * Time complexity: O(size)
+     * Memory complexity: O(size)
+     */
+    public void trimToSize() {
+        int length = roundUpToPowerOfTwo(Math.max(size, 1));
+        if (isGrowable() && length < arr.length) {
+            resize(length);
         }
-        this.right = counter;
-        this.size = counter;
     }
 
     /**
@@ -87,7 +192,7 @@ public class SimpleArrayDeque<T> implements SimpleDeque<T> {
     }
 
     /**
-     * Returns if the array is full.
+     * Returns if the array is full. A growable deque is never full.
      * Time complexity: O(1)
      * Memory complexity: O(1)
      * @return True if array is full false otherwise.
@@ -109,40 +214,40 @@ public class SimpleArrayDeque<T> implements SimpleDeque<T> {
     }
 
     /**
-     * Adds an element to the left of the array.
-     * Time complexity: O(1)
+     * Adds an element to the left of the array. In overwrite mode a full
+     * deque first evicts its rightmost element.
+     * Time complexity: O(1) (amortised when growable)
      * Memory complexity: O(1)
      * @param e Element to push
-     * @throws RuntimeException
+     * @throws RuntimeException if the deque is already full (and not in overwrite mode)
      */
     @Override
     public void pushLeft(T e) throws RuntimeException {
-        if (isFull()) {
-            throw new RuntimeException();
-        }
-        // Update pointer an add element wrapping around the array
-        left = (left - 1) % wrapper;
-        // Handle negative indices
-        if (left < 0) {
-            left = maxIndex + (left) % wrapper;
+        if (overwrite && isFull()) {
+            evict(popRight());
         }
+        ensureRoom();
+        // Update pointer and add element wrapping around the array
+        left = (left - 1) & mask;
         arr[left] = e;
         size++;
     }
 
     /**
-     * Adds an element to the right of the array.
-     * Time complexity: O(1)
+     * Adds an element to the right of the array. In overwrite mode a full
+     * deque first evicts its leftmost element.
+     * Time complexity: O(1) (amortised when growable)
      * Memory complexity: O(1)
      * @param e Element to push
-     * @throws RuntimeException
+     * @throws RuntimeException if the deque is already full (and not in overwrite mode)
      */
     @Override
     public void pushRight(T e) throws RuntimeException {
-        if (isFull()) {
-            throw new RuntimeException();
+        if (overwrite && isFull()) {
+            evict(popLeft());
         }
-        right = (right + 1) % wrapper;
+        ensureRoom();
+        right = (right + 1) & mask;
         arr[right] = e;
         size++;
     }
@@ -188,8 +293,9 @@ public class SimpleArrayDeque<T> implements SimpleDeque<T> {
         }
         T element = arr[left];
         arr[left] = null;
-        left = (left + 1) % wrapper;
+        left = (left + 1) & mask;
         size--;
+        shrinkIfSparse();
         return element;
     }
 
@@ -205,16 +311,11 @@ public class SimpleArrayDeque<T> implements SimpleDeque<T> {
             throw new NoSuchElementException();
         }
         // Retrieve element and update pointer
-        if (right < 0) {
-            right = maxIndex + right % wrapper;
-        }
         T element = arr[right];
         arr[right] = null;
-        right = (right - 1) % wrapper;
-        if (right < 0) {
-            right = maxIndex + right % wrapper;
-        }
+        right = (right - 1) & mask;
         size--;
+        shrinkIfSparse();
         return element;
     }
 
@@ -226,31 +327,28 @@ public class SimpleArrayDeque<T> implements SimpleDeque<T> {
      */
     @Override
     public Iterator<T> iterator() {
-        Iterator iterator = new Iterator() {
+        return new Iterator<T>() {
             // Keep track of the current element being outputted
-            int index = left - 1;
+            int index = left;
             int counter = 0;
 
             @Override
             public boolean hasNext() {
-                return (counter < size() + 1) && (!isEmpty());
+                return counter < size;
             }
 
             @Override
-            public Object next() {
-                counter++;
-                // Wrap around the array
-                index = (index + 1) % wrapper;
-                if (index < 0) {
-                    index = maxIndex + index % wrapper;
-                }
-                if (hasNext()) {
-                    return arr[index];
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
                 }
-                return null;
+                T element = arr[index];
+                // Wrap around the array
+                index = (index + 1) & mask;
+                counter++;
+                return element;
             }
         };
-        return iterator;
     }
 
     /**
@@ -261,28 +359,449 @@ public class SimpleArrayDeque<T> implements SimpleDeque<T> {
      */
     @Override
     public Iterator<T> reverseIterator() {
-        Iterator iterator = new Iterator() {
-            int index = right + 1;
+        return new Iterator<T>() {
+            int index = right;
             int counter = 0;
 
             @Override
             public boolean hasNext() {
-                return (counter < size() + 1) && (!isEmpty());
+                return counter < size;
             }
 
             @Override
-            public Object next() {
-                counter++;
-                index = (index - 1) % wrapper;
-                if (index < 0) {
-                    index = maxIndex + index % wrapper;
-                }
-                if (hasNext()) {
-                    return arr[index];
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
                 }
-                return null;
+                T element = arr[index];
+                index = (index - 1) & mask;
+                counter++;
+                return element;
             }
         };
-        return iterator;
+    }
+
+    /**
+     * Returns the element at the given position, counting from the left.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param index Position of the element, 0 being the leftmost
+     * @returns the element at index
+     * @throws IndexOutOfBoundsException if index < 0 or index >= size
+     */
+    public T get(int index) throws IndexOutOfBoundsException {
+        return arr[slot(index)];
+    }
+
+    /**
+     * Replaces the element at the given position, counting from the left.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param index Position of the element, 0 being the leftmost
+     * @param e Element to store
+     * @returns the element previously at index
+     * @throws IndexOutOfBoundsException if index < 0 or index >= size
+     */
+    public T set(int index, T e) throws IndexOutOfBoundsException {
+        int slot = slot(index);
+        T old = arr[slot];
+        arr[slot] = e;
+        return old;
+    }
+
+    /**
+     * Searches the deque, whose elements must be sorted from left to right
+     * according to comparator, for key. Follows the Arrays.binarySearch
+     * contract: if several elements equal key, any one of them may be found.
+     * Time complexity: O(log(size))
+     * Memory complexity: O(1)
+     * @param key Element to search for
+     * @param comparator Ordering of the elements, or null for their natural ordering
+     * @returns the position of key if found, otherwise (-(insertion point) - 1)
+     */
+    public int binarySearch(T key, Comparator<? super T> comparator) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            T element = arr[(left + mid) & mask];
+            int cmp = comparator == null
+                    ? ((Comparable<? super T>) element).compareTo(key)
+                    : comparator.compare(element, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Constructs a spliterator over the ring range of the deque which splits
+     * in half in O(1) time.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return a SIZED, SUBSIZED and ORDERED spliterator of the deque.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new RingSpliterator(left, size);
+    }
+
+    /**
+     * Pushes every element of an array to the left of the deque, keeping their
+     * array order. Nothing is pushed if there is not room for every element.
+     * Time complexity: O(elements.length) (at most two System.arraycopy calls)
+     * Memory complexity: O(1) (amortised when growable)
+     * @param elements Elements to push
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    @Override
+    public void pushAllLeft(T[] elements) throws RuntimeException {
+        int n = elements.length;
+        ensureRoom(n);
+        left = (left - n) & mask;
+        copyIn(elements, 0, left, n);
+        size += n;
+    }
+
+    /**
+     * Pushes every element of an array to the right of the deque, keeping their
+     * array order. Nothing is pushed if there is not room for every element.
+     * Time complexity: O(elements.length) (at most two System.arraycopy calls)
+     * Memory complexity: O(1) (amortised when growable)
+     * @param elements Elements to push
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    @Override
+    public void pushAllRight(T[] elements) throws RuntimeException {
+        int n = elements.length;
+        ensureRoom(n);
+        copyIn(elements, 0, (right + 1) & mask, n);
+        right = (right + n) & mask;
+        size += n;
+    }
+
+    /**
+     * Pushes every element of another deque to the left of this deque, keeping
+     * their order. The ring segments of another SimpleArrayDeque are copied
+     * directly. Nothing is pushed if there is not room for every element.
+     * Time complexity: O(other.size)
+     * Memory complexity: O(1) (amortised when growable)
+     * @param other Deque to copy elements from
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    @Override
+    public void pushAllLeft(SimpleDeque<? extends T> other) throws RuntimeException {
+        int n = other.size();
+        ensureRoom(n);
+        if (other instanceof SimpleArrayDeque) {
+            SimpleArrayDeque<?> source = (SimpleArrayDeque<?>) other;
+            // The source is read after ensureRoom in case it is this deque
+            int from = source.left;
+            int to = (left - n) & mask;
+            copyIn(source, from, to, n);
+            left = to;
+            size += n;
+        } else {
+            SimpleDeque.super.pushAllLeft(other);
+        }
+    }
+
+    /**
+     * Pushes every element of another deque to the right of this deque, keeping
+     * their order. The ring segments of another SimpleArrayDeque are copied
+     * directly. Nothing is pushed if there is not room for every element.
+     * Time complexity: O(other.size)
+     * Memory complexity: O(1) (amortised when growable)
+     * @param other Deque to copy elements from
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    @Override
+    public void pushAllRight(SimpleDeque<? extends T> other) throws RuntimeException {
+        int n = other.size();
+        ensureRoom(n);
+        if (other instanceof SimpleArrayDeque) {
+            SimpleArrayDeque<?> source = (SimpleArrayDeque<?>) other;
+            copyIn(source, source.left, (right + 1) & mask, n);
+            right = (right + n) & mask;
+            size += n;
+        } else {
+            SimpleDeque.super.pushAllRight(other);
+        }
+    }
+
+    /**
+     * Removes up to n elements from the left of the deque into dest.
+     * Time complexity: O(n) (at most two System.arraycopy calls)
+     * Memory complexity: O(1)
+     * @param n Maximum number of elements to remove
+     * @param dest Array to store the removed elements in
+     * @returns the number of elements removed
+     * @throws IllegalArgumentException if n < 0 or n > dest.length
+     */
+    @Override
+    public int popLeft(int n, T[] dest) throws IllegalArgumentException {
+        if (n < 0 || n > dest.length) {
+            throw new IllegalArgumentException();
+        }
+        int count = Math.min(n, size);
+        copyOut(left, count, dest, 0);
+        clear(left, count);
+        left = (left + count) & mask;
+        size -= count;
+        shrinkIfSparse();
+        return count;
+    }
+
+    /**
+     * Moves elements from the left of this deque to the right of dest until
+     * this deque is empty or dest is full. When dest is also a SimpleArrayDeque
+     * the ring segments are copied directly.
+     * Time complexity: O(number of elements moved)
+     * Memory complexity: O(1) (amortised when dest is growable)
+     * @param dest Deque to move the elements to
+     * @returns the number of elements moved
+     * @throws IllegalArgumentException if dest is this deque
+     */
+    @Override
+    public int drainTo(SimpleDeque<? super T> dest) throws IllegalArgumentException {
+        if (!(dest instanceof SimpleArrayDeque) || dest == this) {
+            return SimpleDeque.super.drainTo(dest);
+        }
+        SimpleArrayDeque<?> target = (SimpleArrayDeque<?>) dest;
+        int count = target.capacity < 0 ? size : Math.min(size, target.capacity - target.size);
+        target.ensureRoom(count);
+        target.copyIn(this, left, (target.right + 1) & target.mask, count);
+        target.right = (target.right + count) & target.mask;
+        target.size += count;
+        clear(left, count);
+        left = (left + count) & mask;
+        size -= count;
+        shrinkIfSparse();
+        return count;
+    }
+
+    /**
+     * Maps a position counted from the left to its ring index.
+     * @throws IndexOutOfBoundsException if index < 0 or index >= size
+     */
+    private int slot(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return (left + index) & mask;
+    }
+
+    /**
+     * Allocates an empty backing array able to hold at least minCapacity elements.
+     */
+    private void allocate(int minCapacity) {
+        int length = roundUpToPowerOfTwo(minCapacity);
+        this.arr = (T[]) new Object[length];
+        this.mask = length - 1;
+        this.left = 0;
+        this.right = mask;
+        this.size = 0;
+    }
+
+    /**
+     * Appends the elements of otherDeque to the right of this (empty) deque.
+     * Another SimpleArrayDeque is copied as its (at most two) ring segments.
+     */
+    private void copyFrom(SimpleDeque<? extends T> otherDeque) {
+        int n = otherDeque.size();
+        if (otherDeque instanceof SimpleArrayDeque) {
+            SimpleArrayDeque<?> source = (SimpleArrayDeque<?>) otherDeque;
+            copyIn(source, source.left, 0, n);
+        } else {
+            Iterator<? extends T> it = otherDeque.iterator();
+            for (int i = 0; i < n; i++) {
+                arr[i] = it.next();
+            }
+        }
+        this.right = (n - 1) & mask;
+        this.size = n;
+    }
+
+    private void evict(T element) {
+        evictions++;
+        if (evictionListener != null) {
+            evictionListener.accept(element);
+        }
+    }
+
+    /**
+     * Halves (or more) the backing array of a growable deque with automatic
+     * shrinking turned on once it is less than a quarter full.
+     */
+    private void shrinkIfSparse() {
+        if (shrinkFloor > 0 && capacity < 0 && arr.length > shrinkFloor
+                && size < arr.length >>> 2) {
+            resize(Math.max(shrinkFloor, roundUpToPowerOfTwo(Math.max(size, 1) << 1)));
+        }
+    }
+
+    /**
+     * Makes room for one more element, doubling the backing array when growable.
+     * @throws RuntimeException if the deque has a fixed capacity and is full
+     */
+    private void ensureRoom() throws RuntimeException {
+        if (isFull()) {
+            throw new RuntimeException();
+        }
+        if (size == arr.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Makes room for n more elements, growing the backing array when growable.
+     * @throws RuntimeException if the deque has a fixed capacity without room for n elements
+     */
+    private void ensureRoom(int n) throws RuntimeException {
+        if ((capacity >= 0 && n > capacity - size) || n > MAX_ARRAY_LENGTH - size) {
+            throw new RuntimeException();
+        }
+        if (size + n > arr.length) {
+            resize(roundUpToPowerOfTwo(size + n));
+        }
+    }
+
+    /**
+     * Doubles the backing array.
+     * Time complexity: O(size)
+     * Memory complexity: O(size)
+     */
+    private void grow() {
+        if (arr.length >= MAX_ARRAY_LENGTH) {
+            throw new RuntimeException();
+        }
+        resize(arr.length << 1);
+    }
+
+    /**
+     * Moves the elements into a new array of the given power of two length,
+     * unwrapping the ring so that the leftmost element ends up at index 0.
+     * Time complexity: O(size)
+     * Memory complexity: O(length)
+     */
+    private void resize(int length) {
+        T[] resized = (T[]) new Object[length];
+        copyOut(left, size, resized, 0);
+        arr = resized;
+        mask = length - 1;
+        left = 0;
+        right = (size - 1) & mask;
+    }
+
+    /**
+     * Copies n elements of the ring, starting at ring index from, into dest.
+     * The ring is copied as at most two contiguous segments.
+     */
+    private void copyOut(int from, int n, Object[] dest, int destPos) {
+        int firstSegment = Math.min(n, arr.length - from);
+        System.arraycopy(arr, from, dest, destPos, firstSegment);
+        System.arraycopy(arr, 0, dest, destPos + firstSegment, n - firstSegment);
+    }
+
+    /**
+     * Copies n elements of src into the ring, starting at ring index to.
+     * The ring is written as at most two contiguous segments.
+     */
+    private void copyIn(Object[] src, int srcPos, int to, int n) {
+        int firstSegment = Math.min(n, arr.length - to);
+        System.arraycopy(src, srcPos, arr, to, firstSegment);
+        System.arraycopy(src, srcPos + firstSegment, arr, 0, n - firstSegment);
+    }
+
+    /**
+     * Copies the n elements of another array deque starting at its ring
+     * index from into this ring, starting at ring index to.
+     */
+    private void copyIn(SimpleArrayDeque<?> other, int from, int to, int n) {
+        int firstSegment = Math.min(n, other.arr.length - from);
+        copyIn(other.arr, from, to, firstSegment);
+        copyIn(other.arr, 0, (to + firstSegment) & mask, n - firstSegment);
+    }
+
+    /**
+     * Clears n slots of the ring starting at ring index from, so that removed
+     * elements can be garbage collected.
+     */
+    private void clear(int from, int n) {
+        int firstSegment = Math.min(n, arr.length - from);
+        Arrays.fill(arr, from, from + firstSegment, null);
+        Arrays.fill(arr, 0, n - firstSegment, null);
+    }
+
+    /**
+     * Returns the smallest power of two which is >= n.
+     */
+    private static int roundUpToPowerOfTwo(int n) {
+        if (n <= 1) {
+            return 1;
+        }
+        return Integer.highestOneBit(n - 1) << 1;
+    }
+
+    /**
+     * Spliterator over count elements of the ring starting at ring index start.
+     */
+    private class RingSpliterator implements Spliterator<T> {
+        private final T[] ring = arr;
+        private final int ringMask = mask;
+        private int index;
+        private int remaining;
+
+        private RingSpliterator(int start, int count) {
+            this.index = start;
+            this.remaining = count;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (remaining <= 0) {
+                return false;
+            }
+            action.accept(ring[index]);
+            index = (index + 1) & ringMask;
+            remaining--;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            for (; remaining > 0; remaining--) {
+                action.accept(ring[index]);
+                index = (index + 1) & ringMask;
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int half = remaining >>> 1;
+            if (half == 0) {
+                return null;
+            }
+            // The prefix goes to the new spliterator to keep encounter order
+            RingSpliterator prefix = new RingSpliterator(index, half);
+            index = (index + half) & ringMask;
+            remaining -= half;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
     }
 }
@@ -1,5 +1,9 @@
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A simple double-ended queue (deque).
@@ -98,5 +102,138 @@ public interface SimpleDeque<T> {
      */
     Iterator<T> reverseIterator();
     
+    /**
+     * Pushes every element of an array to the left of the deque, keeping their
+     * array order, so that elements[0] becomes the leftmost element.
+     *
+     * The default implementation pushes one element at a time, so if the deque
+     * becomes full the elements pushed before that remain in the deque.
+     *
+     * @param elements Elements to push
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    default void pushAllLeft(T[] elements) throws RuntimeException {
+        for (int i = elements.length - 1; i >= 0; i--) {
+            pushLeft(elements[i]);
+        }
+    }
+
+    /**
+     * Pushes every element of an array to the right of the deque, keeping their
+     * array order, so that elements[elements.length - 1] becomes the rightmost element.
+     *
+     * The default implementation pushes one element at a time, so if the deque
+     * becomes full the elements pushed before that remain in the deque.
+     *
+     * @param elements Elements to push
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    default void pushAllRight(T[] elements) throws RuntimeException {
+        for (T element : elements) {
+            pushRight(element);
+        }
+    }
+
+    /**
+     * Pushes every element of another deque to the left of this deque, keeping
+     * their order. The other deque is left intact.
+     *
+     * @param other Deque to copy elements from
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    default void pushAllLeft(SimpleDeque<? extends T> other) throws RuntimeException {
+        Iterator<? extends T> it = other.reverseIterator();
+        while (it.hasNext()) {
+            pushLeft(it.next());
+        }
+    }
+
+    /**
+     * Pushes every element of another deque to the right of this deque, keeping
+     * their order. The other deque is left intact.
+     *
+     * @param other Deque to copy elements from
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    default void pushAllRight(SimpleDeque<? extends T> other) throws RuntimeException {
+        Iterator<? extends T> it = other.iterator();
+        while (it.hasNext()) {
+            pushRight(it.next());
+        }
+    }
+
+    /**
+     * Removes up to n elements from the left of the deque, storing them in
+     * dest[0], dest[1], ... in left to right order.
+     *
+     * @param n Maximum number of elements to remove
+     * @param dest Array to store the removed elements in
+     * @returns the number of elements removed, min(n, size())
+     * @throws IllegalArgumentException if n < 0 or n > dest.length
+     */
+    default int popLeft(int n, T[] dest) throws IllegalArgumentException {
+        if (n < 0 || n > dest.length) {
+            throw new IllegalArgumentException();
+        }
+        int count = 0;
+        while (count < n && !isEmpty()) {
+            dest[count++] = popLeft();
+        }
+        return count;
+    }
+
+    /**
+     * Moves elements from the left of this deque to the right of dest, keeping
+     * their order, until this deque is empty or dest is full.
+     *
+     * @param dest Deque to move the elements to
+     * @returns the number of elements moved
+     * @throws IllegalArgumentException if dest is this deque
+     */
+    default int drainTo(SimpleDeque<? super T> dest) throws IllegalArgumentException {
+        if (dest == this) {
+            throw new IllegalArgumentException();
+        }
+        int count = 0;
+        while (!isEmpty() && !dest.isFull()) {
+            dest.pushRight(popLeft());
+            count++;
+        }
+        return count;
+    }
 
+    /**
+     * Returns a spliterator over the elements in left to right sequence.
+     *
+     * The default implementation wraps iterator() and splits by copying batches
+     * of elements into arrays. It only reports ORDERED, since the iterators of
+     * concurrent implementations are weakly consistent and may not return
+     * exactly size() elements; implementations with exact iterators override
+     * it to report SIZED as well.
+     *
+     * @returns a spliterator over the elements in order from leftmost to rightmost.
+     */
+    default Spliterator<T> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
+    }
+
+    /**
+     * Returns a sequential stream of the elements in left to right sequence.
+     *
+     * @returns a stream over the elements in order from leftmost to rightmost.
+     */
+    default Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns a possibly parallel stream of the elements in left to right sequence.
+     *
+     * The deque must not be modified while the stream is being evaluated.
+     *
+     * @returns a parallel stream over the elements in order from leftmost to rightmost.
+     */
+    default Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
 }
@@ -1,16 +1,44 @@
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 
 /**
  * Deque using a linked list.
- * Memory Complexity: O(3*size) + O(1) = O(size)
+ * Positional access (get/set) is backed by a lazily built index of every
+ * CHECKPOINT_STRIDE-th Link, so it only walks O(CHECKPOINT_STRIDE) Links.
+ * Memory Complexity: O(3*size + size/CHECKPOINT_STRIDE) + O(1) = O(size)
  * @param <T> The type of array elements.
  */
 public class SimpleLinkedDeque<T> implements SimpleDeque<T> {
-    private Link first;
-    private Link last;
+    private static final int CHECKPOINT_STRIDE = 16;
+
+    private Link<T> first;
+    private Link<T> last;
     private int size;
     private int capacity;
+    // Number of structural modifications, used by the iterators to fail fast
+    private int modCount;
+    // Absolute position of the leftmost element. It only changes at the left
+    // end, so the absolute positions of the other elements stay fixed. Positions
+    // are longs so that they cannot wrap around in a long-lived FIFO queue
+    private long base;
+    // Link found by the last get/set and its absolute position, or null
+    private Link<T> finger;
+    private long fingerPosition;
+    // Every CHECKPOINT_STRIDE-th Link, the first at absolute position checkpointStart.
+    // Built by the first get/set, extended at the ends as needed and trimmed
+    // by pops, so it always covers a contiguous run of live positions
+    private SimpleArrayDeque<Link<T>> checkpoints;
+    private long checkpointStart;
+    // Optional free-list of popped Links reused by later pushes
+    private Link<T> pool;
+    private int poolSize;
+    private int poolLimit;
+    private long poolHits;
+    private long poolMisses;
 
     /**
      * Constructs a new linked list based deque with unlimited capacity.
@@ -42,44 +70,24 @@ public class SimpleLinkedDeque<T> implements SimpleDeque<T> {
     /**
      * Constructs a new linked list based deque with unlimited capacity, and initially 
      * populates the deque with the elements of another SimpleDeque.
-     * Time complexity: O(size * time of otherDeque.iterator().next())
+     * Time complexity: O(otherDeque.size) (one walk of its Links when otherDeque
+     * is a SimpleLinkedDeque, otherwise one pass of its iterator)
      * Memory complexity: O(size)
      * @param otherDeque the other deque to copy elements from. otherDeque should be left intact.
      * @requires otherDeque != null
      */
     public SimpleLinkedDeque(SimpleDeque<? extends T> otherDeque) {
+        first = last = null;
+        size = 0;
         capacity = -1;
-        this.size = otherDeque.size();
-        Iterator it = otherDeque.iterator();
-        // Loop over the elements in otherDeque
-        for (int i = 0; i < size; i++) {
-            T element = (T) it.next();
-            Link temp = new Link(element);
-            // Handle adding the first, second and kth element
-            if (i == 0) {
-                first = temp;
-                first.updatePrev(null);
-            } else if (i == 1) {
-                last = temp;
-                first.updateNext(last);
-                last.updatePrev(first);
-                last.updateNext(null);
-            } else {
-                // Add the link to the chain
-                Link temp2 = last;
-                // Update pointers of the link and its neighbours
-                last.updateNext(temp);
-                last = temp;
-                last.updateNext(null);
-                last.updatePrev(temp2);
-            }
-        }
+        copyFrom(otherDeque);
     }
     
     /**
      * Constructs a new linked list based deque with limited capacity, and initially 
      * populates the deque with the elements of another SimpleDeque.
-     * Time complexity: O(size * time of otherDeque.iterator().next())
+     * Time complexity: O(otherDeque.size) (one walk of its Links when otherDeque
+     * is a SimpleLinkedDeque, otherwise one pass of its iterator)
      * Memory complexity: O(size)
      * @param otherDeque the other deque to copy elements from. otherDeque should be left intact.
      * @param capacity the capacity
@@ -90,28 +98,10 @@ public class SimpleLinkedDeque<T> implements SimpleDeque<T> {
         if (capacity <= 0 || otherDeque.size() > capacity) {
             throw new IllegalArgumentException();
         }
+        first = last = null;
+        size = 0;
         this.capacity = capacity;
-        this.size = otherDeque.size();
-        Iterator it = otherDeque.iterator();
-        for (int i = 0; i < size; i++) {
-            T element = (T) it.next();
-            Link temp = new Link(element);
-            if (i == 0) {
-                first = temp;
-                first.updatePrev(null);
-            } else if (i == 1) {
-                last = temp;
-                first.updateNext(last);
-                last.updatePrev(first);
-                last.updateNext(null);
-            } else {
-                Link temp2 = last;
-                last.updateNext(temp);
-                last = temp;
-                last.updateNext(null);
-                last.updatePrev(temp2);
-            }
-        }
+        copyFrom(otherDeque);
     }
 
     /**
@@ -161,7 +151,7 @@ public class SimpleLinkedDeque<T> implements SimpleDeque<T> {
         }
         // Handle adding the first, second and kth element
         if (first == null) {
-            first = new Link(e);
+            first = newLink(e);
             first.updatePrev(null);
             if (last != null) {
                 first.updateNext(last);
@@ -170,19 +160,21 @@ public class SimpleLinkedDeque<T> implements SimpleDeque<T> {
         } else if (last == null) {
             last = first;
             last.updateNext(null);
-            first = new Link(e);
+            first = newLink(e);
             first.updatePrev(null);
             first.updateNext(last);
             last.updatePrev(first);
         } else {
-            Link temp = first;
-            first = new Link(e);
+            Link<T> temp = first;
+            first = newLink(e);
             // Update relevant pointers
             first.updatePrev(null);
             first.updateNext(temp);
             temp.updatePrev(first);
         }
         size++;
+        modCount++;
+        base--;
     }
 
     /**
@@ -198,7 +190,7 @@ public class SimpleLinkedDeque<T> implements SimpleDeque<T> {
             throw new RuntimeException();
         }
         if (last == null) {
-            last = new Link(e);
+            last = newLink(e);
             last.updateNext(null);
             if (first != null) {
                 last.updatePrev(first);
@@ -206,18 +198,19 @@ public class SimpleLinkedDeque<T> implements SimpleDeque<T> {
         } else if (first == null) {
             first = last;
             first.updatePrev(null);
-            last = new Link(e);
+            last = newLink(e);
             last.updateNext(null);
             last.updatePrev(first);
             first.updateNext(last);
         } else {
-            Link temp = last;
-            last = new Link(e);
+            Link<T> temp = last;
+            last = newLink(e);
             last.updatePrev(temp);
             last.updateNext(null);
             temp.updateNext(last);
         }
         size++;
+        modCount++;
     }
 
     /**
@@ -267,20 +260,23 @@ public class SimpleLinkedDeque<T> implements SimpleDeque<T> {
     public T popLeft() throws NoSuchElementException {
         if (size() <= 0) {
             throw new NoSuchElementException();
-        } else if (size() == 1) {
-            T element = this.getLast().element;
+        }
+        // A single element may be held by either first or last
+        Link<T> removed = this.getFirst() != null ? this.getFirst() : this.getLast();
+        T element = removed.element;
+        if (size() == 1) {
             first = null;
             last = null;
-            size--;
-            return element;
-        }
-        T element = this.getFirst().element;
-        first = this.getFirst().next;
-        size--;
-        // Handle the case where all elements have been removed
-        if (size() > 0) {
+        } else {
+            first = removed.next;
             first.updatePrev(null);
         }
+        size--;
+        modCount++;
+        base++;
+        dropFinger(removed);
+        trimCheckpoints();
+        recycle(removed);
         return element;
     }
 
@@ -295,113 +291,644 @@ public class SimpleLinkedDeque<T> implements SimpleDeque<T> {
     public T popRight() throws NoSuchElementException {
         if (size() <= 0) {
             throw new NoSuchElementException();
-        } else if (size() == 1) {
-            T element = this.getFirst().element;
+        }
+        Link<T> removed = this.getLast() != null ? this.getLast() : this.getFirst();
+        T element = removed.element;
+        if (size() == 1) {
             first = null;
             last = null;
-            size--;
-            return element;
+        } else {
+            last = removed.prev;
+            last.updateNext(null);
         }
-        T element = this.getLast().element;
-        last = this.getLast().prev;
-        last.updateNext(null);
         size--;
-        if (size() > 0) {
+        modCount++;
+        dropFinger(removed);
+        trimCheckpoints();
+        recycle(removed);
+        return element;
+    }
+
+    /**
+     * Pushes every element of an array to the left of the deque, keeping their
+     * array order. The new Links are chained first and then spliced on in one
+     * step. Nothing is pushed if there is not room for every element.
+     * Time complexity: O(elements.length)
+     * Memory complexity: O(elements.length)
+     * @param elements Elements to push
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    @Override
+    public void pushAllLeft(T[] elements) throws RuntimeException {
+        checkRoom(elements.length);
+        spliceChain(Arrays.asList(elements).iterator(), elements.length, false);
+    }
+
+    /**
+     * Pushes every element of an array to the right of the deque, keeping their
+     * array order. The new Links are chained first and then spliced on in one
+     * step. Nothing is pushed if there is not room for every element.
+     * Time complexity: O(elements.length)
+     * Memory complexity: O(elements.length)
+     * @param elements Elements to push
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    @Override
+    public void pushAllRight(T[] elements) throws RuntimeException {
+        checkRoom(elements.length);
+        spliceChain(Arrays.asList(elements).iterator(), elements.length, true);
+    }
+
+    /**
+     * Pushes every element of another deque to the left of this deque, keeping
+     * their order. The other deque is left intact. Nothing is pushed if there
+     * is not room for every element.
+     * Time complexity: O(other.size * time of other.iterator().next())
+     * Memory complexity: O(other.size)
+     * @param other Deque to copy elements from
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    @Override
+    public void pushAllLeft(SimpleDeque<? extends T> other) throws RuntimeException {
+        int n = other.size();
+        checkRoom(n);
+        spliceChain(other.iterator(), n, false);
+    }
+
+    /**
+     * Pushes every element of another deque to the right of this deque, keeping
+     * their order. The other deque is left intact. Nothing is pushed if there
+     * is not room for every element.
+     * Time complexity: O(other.size * time of other.iterator().next())
+     * Memory complexity: O(other.size)
+     * @param other Deque to copy elements from
+     * @throws RuntimeException if the deque does not have room for every element
+     */
+    @Override
+    public void pushAllRight(SimpleDeque<? extends T> other) throws RuntimeException {
+        int n = other.size();
+        checkRoom(n);
+        spliceChain(other.iterator(), n, true);
+    }
+
+    /**
+     * Removes up to n elements from the left of the deque into dest, cutting
+     * the chain once after walking it.
+     * Time complexity: O(n)
+     * Memory complexity: O(1)
+     * @param n Maximum number of elements to remove
+     * @param dest Array to store the removed elements in
+     * @returns the number of elements removed
+     * @throws IllegalArgumentException if n < 0 or n > dest.length
+     */
+    @Override
+    public int popLeft(int n, T[] dest) throws IllegalArgumentException {
+        if (n < 0 || n > dest.length) {
+            throw new IllegalArgumentException();
+        }
+        int count = Math.min(n, size);
+        if (count == 0) {
+            return 0;
+        }
+        Link<T> link = head();
+        for (int i = 0; i < count; i++) {
+            dest[i] = link.element;
+            Link<T> next = link.next;
+            recycle(link);
+            link = next;
+        }
+        size -= count;
+        modCount++;
+        base += count;
+        finger = null;
+        trimCheckpoints();
+        if (size == 0) {
+            first = null;
+            last = null;
+        } else {
+            first = link;
             first.updatePrev(null);
         }
-        return element;
+        return count;
+    }
+
+    /**
+     * Moves elements from the left of this deque to the right of dest until
+     * this deque is empty or dest is full. When dest is a SimpleLinkedDeque
+     * with room for every element, the whole chain is spliced across in O(1).
+     * Time complexity: O(1) when spliced, otherwise O(number of elements moved)
+     * Memory complexity: O(1)
+     * @param dest Deque to move the elements to
+     * @returns the number of elements moved
+     * @throws IllegalArgumentException if dest is this deque
+     */
+    @Override
+    public int drainTo(SimpleDeque<? super T> dest) throws IllegalArgumentException {
+        if (!(dest instanceof SimpleLinkedDeque) || dest == this || isEmpty()) {
+            return SimpleDeque.super.drainTo(dest);
+        }
+        SimpleLinkedDeque<T> target = (SimpleLinkedDeque<T>) dest;
+        int count = size;
+        if (target.capacity != -1 && count > target.capacity - target.size) {
+            return SimpleDeque.super.drainTo(dest);
+        }
+        target.spliceRight(head(), tail(), count);
+        first = null;
+        last = null;
+        size = 0;
+        modCount++;
+        base += count;
+        finger = null;
+        checkpoints = null;
+        return count;
+    }
+
+    /**
+     * Returns the element at the given position, counting from the left.
+     * The Link is found by walking from whichever is nearest of the two ends,
+     * the Link found by the previous get or set and the indexed Link at or
+     * before the position, so no more than CHECKPOINT_STRIDE Links are walked.
+     * The first call builds the index, and later calls extend it over
+     * elements pushed since, which costs O(1) per push.
+     * Time complexity: O(CHECKPOINT_STRIDE) = O(1) amortised
+     * Memory complexity: O(1) amortised
+     * @param index Position of the element, 0 being the leftmost
+     * @returns the element at index
+     * @throws IndexOutOfBoundsException if index < 0 or index >= size
+     */
+    public T get(int index) throws IndexOutOfBoundsException {
+        return linkAt(index).element;
+    }
+
+    /**
+     * Replaces the element at the given position, counting from the left.
+     * Time complexity: O(CHECKPOINT_STRIDE) = O(1) amortised
+     * Memory complexity: O(1) amortised
+     * @param index Position of the element, 0 being the leftmost
+     * @param e Element to store
+     * @returns the element previously at index
+     * @throws IndexOutOfBoundsException if index < 0 or index >= size
+     */
+    public T set(int index, T e) throws IndexOutOfBoundsException {
+        Link<T> link = linkAt(index);
+        T old = link.element;
+        link.updateElement(e);
+        return old;
+    }
+
+    /**
+     * Pushes an element to the left of the deque and returns the Link holding
+     * it, which identifies the element to unlink and moveToLeft until it is
+     * removed. Package-private so that DequeCache can keep recency lists.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @returns the Link holding e
+     * @throws RuntimeException if the deque is already full
+     */
+    Link<T> pushLeftLink(T e) throws RuntimeException {
+        pushLeft(e);
+        return head();
+    }
+
+    /**
+     * Removes the element held by a Link of this deque, wherever it is. The
+     * Link must not be used again. Removing from the middle moves the
+     * positions of the elements right of it, so it drops the positional index
+     * and finger, which the next get or set rebuilds.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param link a Link returned by pushLeftLink for an element still in the deque
+     */
+    void unlink(Link<T> link) {
+        detach(link);
+        recycle(link);
+    }
+
+    /**
+     * Moves the element held by a Link of this deque to the left end.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param link a Link returned by pushLeftLink for an element still in the deque
+     */
+    void moveToLeft(Link<T> link) {
+        if (link == head()) {
+            return;
+        }
+        detach(link);
+        // Another element remains, since link was not the head
+        Link<T> oldHead = head();
+        Link<T> oldTail = tail();
+        link.updatePrev(null);
+        link.updateNext(oldHead);
+        oldHead.updatePrev(link);
+        first = link;
+        last = oldTail;
+        size++;
+        modCount++;
+        base--;
+    }
+
+    /**
+     * Enables (or resizes) a bounded pool of Links released by pops, which
+     * later pushes reuse instead of allocating. A deque that pushes and pops
+     * at a steady size then stops allocating once the pool has warmed up.
+     * A limit of 0 disables the pool and releases any pooled Links.
+     * Time complexity: O(number of pooled Links dropped)
+     * Memory complexity: O(maxNodes)
+     * @param maxNodes the maximum number of Links kept for reuse
+     * @throws IllegalArgumentException if maxNodes < 0
+     */
+    public void setNodePoolLimit(int maxNodes) throws IllegalArgumentException {
+        if (maxNodes < 0) {
+            throw new IllegalArgumentException();
+        }
+        poolLimit = maxNodes;
+        while (poolSize > poolLimit) {
+            pool = pool.next;
+            poolSize--;
+        }
+    }
+
+    /**
+     * Returns the number of pushes which reused a pooled Link.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return the pool hit count
+     */
+    public long getNodePoolHits() {
+        return poolHits;
+    }
+
+    /**
+     * Returns the number of pushes which had to allocate a Link while the pool
+     * was enabled.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return the pool miss count
+     */
+    public long getNodePoolMisses() {
+        return poolMisses;
     }
 
     /**
      * Returns an iterator for the deque in left to right sequence.
-     * Time complexity: O(size^2) (for each call to next())
+     * The iterator fails fast with a ConcurrentModificationException if the
+     * deque is modified after it is created.
+     * Time complexity: O(1) (for each call to next())
      * Memory complexity: O(1)
      * @returns an iterator over the elements in in order from leftmost to rightmost.
      */
     @Override
     public Iterator<T> iterator() {
-        Iterator iterator = new Iterator() {
-            int counter = 0;
-
-            @Override
-            public boolean hasNext() {
-                return (counter < size()) && (!isEmpty());
-            }
-
-            @Override
-            public Object next() {
-                if (hasNext()) {
-                    Link temp = getFirst();
-                    if (temp == null) {
-                        counter++;
-                        return getLast().element;
-                    }
-                    for (int i = 0; i < counter; i++) {
-                        if (temp.next == null) {
-                            return temp.element;
-                        }
-                        temp = temp.next;
-                    }
-                    // Update pointer
-                    counter++;
-                    return temp.element;
-                }
-                throw new NoSuchElementException();
-            }
-        };
-        return iterator;
+        return new LinkIterator(getFirst() != null ? getFirst() : getLast(), true);
     }
 
 
     /**
      * Returns an iterator for the deque in right to left sequence.
-     * Time complexity: O(size^2) (for each call to next())
+     * The iterator fails fast with a ConcurrentModificationException if the
+     * deque is modified after it is created.
+     * Time complexity: O(1) (for each call to next())
      * Memory complexity: O(1)
      * @returns an iterator over the elements in in order from rightmost to leftmost.
      */
     @Override
     public Iterator<T> reverseIterator() {
-        Iterator iterator = new Iterator() {
-            int counter = 0;
+        return new LinkIterator(getLast() != null ? getLast() : getFirst(), false);
+    }
 
-            @Override
-            public boolean hasNext() {
-                return (counter < size()) && (!isEmpty());
+    /**
+     * Returns a spliterator over the elements in left to right sequence, which
+     * splits by copying batches of elements into arrays.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns a SIZED, SUBSIZED and ORDERED spliterator of the deque.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED);
+    }
+
+    /**
+     * Returns a Link holding element, taken from the pool when one is available.
+     */
+    private Link<T> newLink(T element) {
+        if (pool == null) {
+            if (poolLimit > 0) {
+                poolMisses++;
             }
+            return new Link<>(element);
+        }
+        Link<T> link = pool;
+        pool = link.next;
+        poolSize--;
+        poolHits++;
+        link.updateNext(null);
+        link.updateElement(element);
+        return link;
+    }
 
-            @Override
-            public Object next() {
-                if (hasNext()) {
-                    Link temp = getLast();
-                    if (temp == null) {
-                        counter++;
-                        return getFirst().element;
-                    }
-                    for (int i = 0; i < counter; i++) {
-                        temp = temp.prev;
-                    }
-                    counter++;
-                    return temp.element;
-                }
-                throw new NoSuchElementException();
+    /**
+     * Returns a removed Link to the pool if there is room, clearing its references.
+     */
+    private void recycle(Link<T> link) {
+        if (poolSize >= poolLimit) {
+            return;
+        }
+        link.updateElement(null);
+        link.updatePrev(null);
+        link.updateNext(pool);
+        pool = link;
+        poolSize++;
+    }
+
+    /**
+     * Finds the Link at a position counted from the left, starting from the
+     * nearest of the two ends, the finger and the indexed Link at or before
+     * it, and leaves the finger on it.
+     * @throws IndexOutOfBoundsException if index < 0 or index >= size
+     */
+    private Link<T> linkAt(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        Link<T> link = head();
+        int position = 0;
+        if (size - 1 - index < index) {
+            link = tail();
+            position = size - 1;
+        }
+        if (Math.abs(position - index) > CHECKPOINT_STRIDE) {
+            extendCheckpoints();
+            int slot = (int) Math.min((base + index - checkpointStart) / CHECKPOINT_STRIDE,
+                    checkpoints.size() - 1);
+            int slotIndex = (int) (checkpointStart + (long) slot * CHECKPOINT_STRIDE - base);
+            if (Math.abs(slotIndex - index) < Math.abs(position - index)) {
+                link = checkpoints.get(slot);
+                position = slotIndex;
             }
-        };
+        }
+        if (finger != null) {
+            int fingerIndex = (int) (fingerPosition - base);
+            if (Math.abs(fingerIndex - index) < Math.abs(position - index)) {
+                link = finger;
+                position = fingerIndex;
+            }
+        }
+        while (position < index) {
+            link = link.next;
+            position++;
+        }
+        while (position > index) {
+            link = link.prev;
+            position--;
+        }
+        finger = link;
+        fingerPosition = base + index;
+        return link;
+    }
+
+    /**
+     * Makes the index cover every position in the deque, building it from the
+     * head if there is none and otherwise walking out from its first and last
+     * Links over the elements pushed since. Requires size > 0.
+     */
+    private void extendCheckpoints() {
+        if (checkpoints == null || checkpoints.isEmpty()) {
+            checkpoints = new SimpleArrayDeque<>();
+            checkpoints.pushRight(head());
+            checkpointStart = base;
+        }
+        // The last indexed Link is live, so walking right from it stays in the list
+        long lastPosition = checkpointStart + (long) (checkpoints.size() - 1) * CHECKPOINT_STRIDE;
+        Link<T> link = checkpoints.peekRight();
+        while (lastPosition + CHECKPOINT_STRIDE < base + size) {
+            for (int i = 0; i < CHECKPOINT_STRIDE; i++) {
+                link = link.next;
+            }
+            checkpoints.pushRight(link);
+            lastPosition += CHECKPOINT_STRIDE;
+        }
+        link = checkpoints.peekLeft();
+        while (checkpointStart - CHECKPOINT_STRIDE >= base) {
+            for (int i = 0; i < CHECKPOINT_STRIDE; i++) {
+                link = link.prev;
+            }
+            checkpoints.pushLeft(link);
+            checkpointStart -= CHECKPOINT_STRIDE;
+        }
+    }
+
+    /**
+     * Drops indexed Links whose positions have been popped, so the index
+     * never points at a removed (and possibly recycled) Link.
+     */
+    private void trimCheckpoints() {
+        if (checkpoints == null) {
+            return;
+        }
+        while (!checkpoints.isEmpty() && checkpointStart < base) {
+            checkpoints.popLeft();
+            checkpointStart += CHECKPOINT_STRIDE;
+        }
+        while (!checkpoints.isEmpty()
+                && checkpointStart + (long) (checkpoints.size() - 1) * CHECKPOINT_STRIDE
+                        >= base + size) {
+            checkpoints.popRight();
+        }
+    }
+
+    /**
+     * Takes a Link out of the list without recycling it, keeping the
+     * positional index and finger valid where the remaining positions allow.
+     */
+    private void detach(Link<T> link) {
+        if (size == 1) {
+            first = null;
+            last = null;
+            base++;
+        } else if (link == head()) {
+            first = link.next;
+            first.updatePrev(null);
+            base++;
+        } else if (link == tail()) {
+            last = link.prev;
+            last.updateNext(null);
+        } else {
+            link.prev.updateNext(link.next);
+            link.next.updatePrev(link.prev);
+            finger = null;
+            checkpoints = null;
+        }
+        link.updatePrev(null);
+        link.updateNext(null);
+        size--;
+        modCount++;
+        dropFinger(link);
+        trimCheckpoints();
+    }
 
-        return iterator;
+    /**
+     * Forgets the finger if it is on a Link being removed.
+     */
+    private void dropFinger(Link<T> removed) {
+        if (finger == removed) {
+            finger = null;
+        }
     }
 
-    private Link getFirst() {
+    /**
+     * Appends the elements of otherDeque to the right of this (empty) deque.
+     * Another SimpleLinkedDeque has its Links walked directly.
+     */
+    private void copyFrom(SimpleDeque<? extends T> otherDeque) {
+        int n = otherDeque.size();
+        if (!(otherDeque instanceof SimpleLinkedDeque) || n == 0) {
+            spliceChain(otherDeque.iterator(), n, true);
+            return;
+        }
+        Link<T> source = ((SimpleLinkedDeque<T>) otherDeque).head();
+        Link<T> chainFirst = new Link<>(source.element);
+        Link<T> chainLast = chainFirst;
+        for (int i = 1; i < n; i++) {
+            source = source.next;
+            Link<T> link = new Link<>(source.element);
+            link.updatePrev(chainLast);
+            chainLast.updateNext(link);
+            chainLast = link;
+        }
+        spliceRight(chainFirst, chainLast, n);
+    }
+
+    /**
+     * @throws RuntimeException if the deque does not have room for n more elements
+     */
+    private void checkRoom(int n) throws RuntimeException {
+        if (capacity != -1 && n > capacity - size) {
+            throw new RuntimeException();
+        }
+    }
+
+    /**
+     * Links the next n elements of it into a new chain and splices the chain
+     * onto the right (or left) of the deque.
+     */
+    private void spliceChain(Iterator<? extends T> it, int n, boolean right) {
+        if (n == 0) {
+            return;
+        }
+        Link<T> chainFirst = newLink(it.next());
+        Link<T> chainLast = chainFirst;
+        for (int i = 1; i < n; i++) {
+            Link<T> link = newLink(it.next());
+            link.updatePrev(chainLast);
+            chainLast.updateNext(link);
+            chainLast = link;
+        }
+        if (right) {
+            spliceRight(chainFirst, chainLast, n);
+        } else {
+            spliceLeft(chainFirst, chainLast, n);
+        }
+    }
+
+    private void spliceRight(Link<T> chainFirst, Link<T> chainLast, int n) {
+        if (size == 0) {
+            first = chainFirst;
+        } else {
+            Link<T> oldHead = head();
+            Link<T> oldTail = tail();
+            oldTail.updateNext(chainFirst);
+            chainFirst.updatePrev(oldTail);
+            first = oldHead;
+        }
+        last = chainLast;
+        size += n;
+        modCount++;
+    }
+
+    private void spliceLeft(Link<T> chainFirst, Link<T> chainLast, int n) {
+        if (size == 0) {
+            last = chainLast;
+        } else {
+            Link<T> oldHead = head();
+            Link<T> oldTail = tail();
+            chainLast.updateNext(oldHead);
+            oldHead.updatePrev(chainLast);
+            last = oldTail;
+        }
+        first = chainFirst;
+        size += n;
+        modCount++;
+        base -= n;
+    }
+
+    /**
+     * Returns the leftmost Link; a single element may be held by either first or last.
+     */
+    private Link<T> head() {
+        return first != null ? first : last;
+    }
+
+    /**
+     * Returns the rightmost Link.
+     */
+    private Link<T> tail() {
+        return last != null ? last : first;
+    }
+
+    private Link<T> getFirst() {
         return first;
     }
 
-    private Link getLast() {
+    private Link<T> getLast() {
         return last;
     }
 
-    private class Link {
+    /**
+     * Iterator holding a cursor on the next Link to return.
+     */
+    private class LinkIterator implements Iterator<T> {
+        private Link<T> cursor;
+        private int remaining;
+        private final boolean forward;
+        private final int expectedModCount;
+
+        private LinkIterator(Link<T> start, boolean forward) {
+            this.cursor = start;
+            this.remaining = size;
+            this.forward = forward;
+            this.expectedModCount = modCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public T next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T element = cursor.element;
+            // Update pointer
+            cursor = forward ? cursor.next : cursor.prev;
+            remaining--;
+            return element;
+        }
+    }
+
+    // Static so that Links spliced into another deque by drainTo or pooled
+    // do not keep the deque that created them reachable
+    static class Link<T> {
         T element;
-        Link next;
-        Link prev;
+        Link<T> next;
+        Link<T> prev;
 
         private Link(T element) {
             this.element = element;
@@ -409,11 +936,11 @@ public class SimpleLinkedDeque<T> implements SimpleDeque<T> {
             prev = null;
         }
 
-        private void updateNext(Link next) {
+        private void updateNext(Link<T> next) {
             this.next = next;
         }
 
-        private void updatePrev(Link prev) {
+        private void updatePrev(Link<T> prev) {
             this.prev = prev;
         }
 
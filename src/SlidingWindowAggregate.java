@@ -0,0 +1,209 @@
+import java.util.NoSuchElementException;
+import java.util.function.BinaryOperator;
+
+/**
+ * Running aggregate of any associative operation (sum, gcd, min, a custom
+ * monoid...) over a sliding window of a stream of values.
+ *
+ * The window is a queue made of two stacks built on SimpleArrayDeque. New
+ * values go on the back stack, which keeps a running aggregate of everything
+ * on it. Old values leave from the front stack, which stores for each entry
+ * the aggregate of that entry and every newer entry below it. When the front
+ * stack runs out, the back stack is flipped onto it, recomputing those
+ * aggregates once. Every value is flipped at most once, so each event costs
+ * O(1) amortised applications of the operation, and the window aggregate is
+ * one application. The operation need not be commutative or invertible;
+ * values are always combined oldest first.
+ *
+ * A count window holds the last size values added. A time window holds the
+ * values whose timestamps are in (latest - span, latest], where latest is the
+ * newest timestamp added or advanced to.
+ * Memory Complexity: O(window) + O(1) = O(window)
+ * @param <T> The type of values.
+ */
+public class SlidingWindowAggregate<T> {
+    private final BinaryOperator<T> operator;
+    private final boolean timeBased;
+    private final long span;
+    // Position (sequence number or timestamp) of the newest value
+    private long latest;
+    private boolean started;
+
+    // Positions of every value in the window, oldest at the left
+    private final LongArrayDeque positions = new LongArrayDeque();
+    // Front stack (top at the right): aggregate of each entry and the newer entries below it
+    private final SimpleArrayDeque<T> frontAggregates = new SimpleArrayDeque<>();
+    // Back stack (top at the right) of values, newest on top
+    private final SimpleArrayDeque<T> back = new SimpleArrayDeque<>();
+    private T backAggregate;
+
+    private SlidingWindowAggregate(BinaryOperator<T> operator, boolean timeBased, long span) {
+        if (span <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.operator = operator;
+        this.timeBased = timeBased;
+        this.span = span;
+    }
+
+    /**
+     * Creates a window over the last size values added.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param size the number of values in the window
+     * @param operator an associative operation
+     * @return an empty window
+     * @throws IllegalArgumentException if size <= 0
+     * @requires operator != null
+     */
+    public static <T> SlidingWindowAggregate<T> countWindow(int size, BinaryOperator<T> operator)
+            throws IllegalArgumentException {
+        return new SlidingWindowAggregate<>(operator, false, size);
+    }
+
+    /**
+     * Creates a window over the values added in the last span time units.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param span the length of the window, in the units of the timestamps
+     * @param operator an associative operation
+     * @return an empty window
+     * @throws IllegalArgumentException if span <= 0
+     * @requires operator != null
+     */
+    public static <T> SlidingWindowAggregate<T> timeWindow(long span, BinaryOperator<T> operator)
+            throws IllegalArgumentException {
+        return new SlidingWindowAggregate<>(operator, true, span);
+    }
+
+    /**
+     * Returns whether the window holds no values.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the window is empty, otherwise false.
+     */
+    public boolean isEmpty() {
+        return positions.isEmpty();
+    }
+
+    /**
+     * Returns the number of values in the window.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return Number of values.
+     */
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * Adds a value to a count window, expiring the oldest value if the window
+     * was full.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1) amortised
+     * @param value the value to add
+     * @throws IllegalStateException if this is a time window
+     */
+    public void add(T value) throws IllegalStateException {
+        if (timeBased) {
+            throw new IllegalStateException();
+        }
+        insert(started ? latest + 1 : 0, value);
+    }
+
+    /**
+     * Adds a value to a time window, expiring values older than the window.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1) amortised
+     * @param timestamp the time of the value, no earlier than any before it
+     * @param value the value to add
+     * @throws IllegalStateException if this is a count window
+     * @throws IllegalArgumentException if timestamp is earlier than the latest one
+     */
+    public void add(long timestamp, T value) throws IllegalStateException, IllegalArgumentException {
+        if (!timeBased) {
+            throw new IllegalStateException();
+        }
+        if (started && timestamp < latest) {
+            throw new IllegalArgumentException();
+        }
+        insert(timestamp, value);
+    }
+
+    /**
+     * Moves a time window forward without adding a value, expiring values
+     * which have fallen out of it.
+     * Time complexity: O(1) amortised per value expired
+     * Memory complexity: O(1)
+     * @param timestamp the current time, no earlier than any before it
+     * @throws IllegalStateException if this is a count window
+     * @throws IllegalArgumentException if timestamp is earlier than the latest one
+     */
+    public void advanceTo(long timestamp) throws IllegalStateException, IllegalArgumentException {
+        if (!timeBased) {
+            throw new IllegalStateException();
+        }
+        if (started && timestamp < latest) {
+            throw new IllegalArgumentException();
+        }
+        latest = timestamp;
+        started = true;
+        expire();
+    }
+
+    /**
+     * Returns the values in the window combined oldest first.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return the aggregate of the window
+     * @throws NoSuchElementException if the window is empty
+     */
+    public T aggregate() throws NoSuchElementException {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        if (frontAggregates.isEmpty()) {
+            return backAggregate;
+        }
+        if (back.isEmpty()) {
+            return frontAggregates.peekRight();
+        }
+        return operator.apply(frontAggregates.peekRight(), backAggregate);
+    }
+
+    private void insert(long position, T value) {
+        latest = position;
+        started = true;
+        backAggregate = back.isEmpty() ? value : operator.apply(backAggregate, value);
+        back.pushRight(value);
+        positions.pushRight(position);
+        expire();
+    }
+
+    /**
+     * Removes the values which have left the window, oldest first.
+     */
+    private void expire() {
+        while (!positions.isEmpty() && latest - positions.peekLeft() >= span) {
+            positions.popLeft();
+            if (frontAggregates.isEmpty()) {
+                flip();
+            }
+            frontAggregates.popRight();
+        }
+    }
+
+    /**
+     * Moves every value from the back stack to the front stack, newest first,
+     * so that the oldest value ends up on top.
+     */
+    private void flip() {
+        T aggregate = null;
+        while (!back.isEmpty()) {
+            T value = back.popRight();
+            aggregate = frontAggregates.isEmpty() ? value : operator.apply(value, aggregate);
+            frontAggregates.pushRight(aggregate);
+        }
+        backAggregate = null;
+    }
+}
@@ -0,0 +1,194 @@
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+
+/**
+ * Running minimum and maximum over a sliding window of a stream of values.
+ *
+ * Uses two monotonic deques built on SimpleArrayDeque: a new value first pops
+ * every value it dominates from the right (a value which is older and no
+ * smaller can never be the minimum again), and values are popped from the
+ * left once they fall out of the window. Each value is pushed and popped at
+ * most once per deque, so adding a value is amortised O(1) and min()/max()
+ * are O(1), instead of rescanning the window.
+ *
+ * A count window holds the last size values added. A time window holds the
+ * values whose timestamps are in (latest - span, latest], where latest is the
+ * newest timestamp added or advanced to.
+ * Memory Complexity: O(window) + O(1) = O(window)
+ * @param <T> The type of values.
+ */
+public class SlidingWindowMinMax<T> {
+    private final Comparator<? super T> comparator;
+    private final boolean timeBased;
+    private final long span;
+    // Position (sequence number or timestamp) of the newest value
+    private long latest;
+    private boolean started;
+
+    // Values in increasing order from left to right, with their positions
+    private final SimpleArrayDeque<T> minValues = new SimpleArrayDeque<>();
+    private final LongArrayDeque minPositions = new LongArrayDeque();
+    // Values in decreasing order from left to right, with their positions
+    private final SimpleArrayDeque<T> maxValues = new SimpleArrayDeque<>();
+    private final LongArrayDeque maxPositions = new LongArrayDeque();
+
+    private SlidingWindowMinMax(Comparator<? super T> comparator, boolean timeBased, long span) {
+        if (span <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.comparator = comparator;
+        this.timeBased = timeBased;
+        this.span = span;
+    }
+
+    /**
+     * Creates a window over the last size values added.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param size the number of values in the window
+     * @param comparator ordering of the values
+     * @return an empty window
+     * @throws IllegalArgumentException if size <= 0
+     * @requires comparator != null
+     */
+    public static <T> SlidingWindowMinMax<T> countWindow(int size, Comparator<? super T> comparator)
+            throws IllegalArgumentException {
+        return new SlidingWindowMinMax<>(comparator, false, size);
+    }
+
+    /**
+     * Creates a window over the values added in the last span time units.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param span the length of the window, in the units of the timestamps
+     * @param comparator ordering of the values
+     * @return an empty window
+     * @throws IllegalArgumentException if span <= 0
+     * @requires comparator != null
+     */
+    public static <T> SlidingWindowMinMax<T> timeWindow(long span, Comparator<? super T> comparator)
+            throws IllegalArgumentException {
+        return new SlidingWindowMinMax<>(comparator, true, span);
+    }
+
+    /**
+     * Returns whether the window holds no values.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the window is empty, otherwise false.
+     */
+    public boolean isEmpty() {
+        // The newest value is always in both deques while it is in the window
+        return minValues.isEmpty();
+    }
+
+    /**
+     * Adds a value to a count window, expiring the oldest value if the window
+     * was full.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1) amortised
+     * @param value the value to add
+     * @throws IllegalStateException if this is a time window
+     */
+    public void add(T value) throws IllegalStateException {
+        if (timeBased) {
+            throw new IllegalStateException();
+        }
+        insert(started ? latest + 1 : 0, value);
+    }
+
+    /**
+     * Adds a value to a time window, expiring values older than the window.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1) amortised
+     * @param timestamp the time of the value, no earlier than any before it
+     * @param value the value to add
+     * @throws IllegalStateException if this is a count window
+     * @throws IllegalArgumentException if timestamp is earlier than the latest one
+     */
+    public void add(long timestamp, T value) throws IllegalStateException, IllegalArgumentException {
+        if (!timeBased) {
+            throw new IllegalStateException();
+        }
+        if (started && timestamp < latest) {
+            throw new IllegalArgumentException();
+        }
+        insert(timestamp, value);
+    }
+
+    /**
+     * Moves a time window forward without adding a value, expiring values
+     * which have fallen out of it.
+     * Time complexity: O(number of values expired)
+     * Memory complexity: O(1)
+     * @param timestamp the current time, no earlier than any before it
+     * @throws IllegalStateException if this is a count window
+     * @throws IllegalArgumentException if timestamp is earlier than the latest one
+     */
+    public void advanceTo(long timestamp) throws IllegalStateException, IllegalArgumentException {
+        if (!timeBased) {
+            throw new IllegalStateException();
+        }
+        if (started && timestamp < latest) {
+            throw new IllegalArgumentException();
+        }
+        latest = timestamp;
+        started = true;
+        expire();
+    }
+
+    /**
+     * Returns the smallest value in the window.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return the minimum
+     * @throws NoSuchElementException if the window is empty
+     */
+    public T min() throws NoSuchElementException {
+        return minValues.peekLeft();
+    }
+
+    /**
+     * Returns the largest value in the window.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return the maximum
+     * @throws NoSuchElementException if the window is empty
+     */
+    public T max() throws NoSuchElementException {
+        return maxValues.peekLeft();
+    }
+
+    private void insert(long position, T value) {
+        latest = position;
+        started = true;
+        // Older values which are no better than the new one can be dropped
+        while (!minValues.isEmpty() && comparator.compare(minValues.peekRight(), value) >= 0) {
+            minValues.popRight();
+            minPositions.popRight();
+        }
+        minValues.pushRight(value);
+        minPositions.pushRight(position);
+        while (!maxValues.isEmpty() && comparator.compare(maxValues.peekRight(), value) <= 0) {
+            maxValues.popRight();
+            maxPositions.popRight();
+        }
+        maxValues.pushRight(value);
+        maxPositions.pushRight(position);
+        expire();
+    }
+
+    /**
+     * Pops values which have left the window from the left of both deques.
+     */
+    private void expire() {
+        while (!minPositions.isEmpty() && latest - minPositions.peekLeft() >= span) {
+            minValues.popLeft();
+            minPositions.popLeft();
+        }
+        while (!maxPositions.isEmpty() && latest - maxPositions.peekLeft() >= span) {
+            maxValues.popLeft();
+            maxPositions.popLeft();
+        }
+    }
+}
@@ -1,4 +1,14 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
 public class SortingAlgorithms {
+    // Sub-arrays at most this long are sorted by a single thread
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
     /**
      * Sorts the given array using the selection sort algorithm.
      * This should modify the array sin-place.
@@ -141,6 +151,130 @@ public class SortingAlgorithms {
         inPlaceQuickSort(input, reversed, partitionIndex + 1, r);
     }
 
+    /**
+     * Sorts the given array using the quick sort algorithm, spreading the
+     * recursive sub-arrays over several threads.
+     * This should modify the array in-place.
+     *
+     * Each thread keeps its pending sub-arrays in its own WorkStealingDeque and
+     * steals from the other threads' deques when it runs out of work. Sub-arrays
+     * of at most PARALLEL_THRESHOLD elements are sorted sequentially. If a
+     * comparison throws in any thread, every thread stops and the first
+     * exception is rethrown once they have all finished.
+     *
+     * @param input An array of comparable objects.
+     * @param reversed If false, the array should be sorted ascending.
+     *                 Otherwise, it should be sorted descending.
+     * @param threads The number of threads to sort with.
+     * @requires input != null && threads > 0
+     */
+    static <T extends Comparable> void parallelQuickSort(T[] input, boolean reversed,
+                                                         int threads) {
+        if (input.length <= PARALLEL_THRESHOLD || threads <= 1) {
+            quickSort(input, reversed);
+            return;
+        }
+        List<WorkStealingDeque<int[]>> deques = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            deques.add(new WorkStealingDeque<>());
+        }
+        // Number of sub-arrays pushed but not yet fully sorted
+        AtomicInteger pending = new AtomicInteger(1);
+        // First exception thrown by any worker, which stops them all
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        deques.get(0).pushRight(new int[]{0, input.length - 1});
+
+        Thread[] workers = new Thread[threads - 1];
+        for (int i = 1; i < threads; i++) {
+            int id = i;
+            workers[i - 1] = new Thread(() ->
+                    quickSortWorker(input, reversed, deques, id, pending, failure));
+            workers[i - 1].start();
+        }
+        // The calling thread works as worker 0
+        quickSortWorker(input, reversed, deques, 0, pending, failure);
+        boolean interrupted = false;
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        Throwable thrown = failure.get();
+        if (thrown instanceof RuntimeException) {
+            throw (RuntimeException) thrown;
+        }
+        if (thrown instanceof Error) {
+            throw (Error) thrown;
+        }
+        if (thrown != null) {
+            throw new RuntimeException(thrown);
+        }
+    }
+
+    private static <T extends Comparable> void quickSortWorker(T[] input, boolean reversed,
+                                                               List<WorkStealingDeque<int[]>> deques,
+                                                               int id, AtomicInteger pending,
+                                                               AtomicReference<Throwable> failure) {
+        WorkStealingDeque<int[]> own = deques.get(id);
+        try {
+            while (pending.get() > 0 && failure.get() == null) {
+                int[] range = takeRange(deques, id);
+                if (range == null) {
+                    Thread.yield();
+                    continue;
+                }
+                int l = range[0];
+                int r = range[1];
+                // Keep partitioning, handing the left part to thieves
+                while (r - l >= PARALLEL_THRESHOLD) {
+                    int partitionIndex = partition(input, l, r, reversed);
+                    pending.incrementAndGet();
+                    own.pushRight(new int[]{l, partitionIndex - 1});
+                    l = partitionIndex + 1;
+                }
+                inPlaceQuickSort(input, reversed, l, r);
+                pending.decrementAndGet();
+            }
+        } catch (Throwable t) {
+            // The failed range is never finished, so pending cannot reach 0
+            failure.compareAndSet(null, t);
+        }
+    }
+
+    /**
+     * Takes a range from this worker's own deque, or steals one from another
+     * worker, starting at a random victim. Returns null if none was found.
+     */
+    private static int[] takeRange(List<WorkStealingDeque<int[]>> deques, int id) {
+        WorkStealingDeque<int[]> own = deques.get(id);
+        if (!own.isEmpty()) {
+            try {
+                return own.popRight();
+            } catch (NoSuchElementException e) {
+                // Lost the last range to a thief
+            }
+        }
+        int start = ThreadLocalRandom.current().nextInt(deques.size());
+        for (int i = 0; i < deques.size(); i++) {
+            WorkStealingDeque<int[]> victim = deques.get((start + i) % deques.size());
+            if (victim != own && !victim.isEmpty()) {
+                try {
+                    return victim.popLeft();
+                } catch (NoSuchElementException e) {
+                    // Emptied by another thief, try the next victim
+                }
+            }
+        }
+        return null;
+    }
+
     private static <T extends Comparable> int partition(T[] input, int l,
                                                                int r,
                                                                boolean reversed) {
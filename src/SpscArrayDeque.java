@@ -0,0 +1,234 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Bounded Circular Deque Array for exactly one producer thread and one
+ * consumer thread.
+ *
+ * The producer offers elements at the right and the consumer polls them from
+ * the left, without locks or CAS. Each side publishes its counter with a release store (no full
+ * fence) and reads the other side's counter with an acquire load. Each side
+ * also keeps a private copy of the other counter and only re-reads the shared
+ * one when its copy says the deque is full (or empty), so in steady state the
+ * two threads rarely touch each other's cache line.
+ * The consumer's and producer's counters sit in one long array with 128 bytes
+ * of padding before, between and after them, so they never share a cache line
+ * (or an adjacent-line prefetch pair) with each other or with other objects.
+ *
+ * Since each end belongs to one thread, this is not a SimpleDeque: offer must
+ * only be called by the producer, and poll and peek only by the consumer.
+ * They return false or null rather than throwing when the deque is full or
+ * empty, since a polling thread meets those states all the time.
+ * size(), isEmpty(), isFull() and the iterators are best-effort from any thread.
+ * Null elements are not permitted.
+ * Memory Complexity: O(capacity) + O(1) = O(capacity)
+ * @param <T> The type of array elements.
+ */
+public class SpscArrayDeque<T> implements Iterable<T> {
+    private static final VarHandle COUNTERS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final int MAX_SLOTS = 1 << 30;
+    // 16 longs = 128 bytes of padding around each pair of counters
+    private static final int PAD = 16;
+    // Consumer line: next position to pop, and the consumer's copy of TAIL
+    private static final int HEAD = PAD;
+    private static final int TAIL_CACHE = PAD + 1;
+    // Producer line: next position to push, and the producer's copy of HEAD
+    private static final int TAIL = 2 * PAD + 2;
+    private static final int HEAD_CACHE = 2 * PAD + 3;
+
+    private final int capacity;
+    private final int mask;
+    private final Object[] slots;
+    private final long[] counters = new long[3 * PAD + 4];
+
+    /**
+     * Constructs a new single-producer single-consumer deque with limited capacity.
+     * Time complexity: O(capacity)
+     * Memory complexity: O(capacity)
+     * @param capacity the capacity
+     * @throws IllegalArgumentException if capacity <= 0
+     */
+    public SpscArrayDeque(int capacity) throws IllegalArgumentException {
+        if (capacity <= 0 || capacity > MAX_SLOTS) {
+            throw new IllegalArgumentException();
+        }
+        int length = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.capacity = capacity;
+        this.mask = length - 1;
+        this.slots = new Object[length];
+    }
+
+    /**
+     * Returns whether the deque is empty (best-effort).
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the deque is empty, otherwise false.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns whether the deque is full (best-effort).
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the deque is full, otherwise false.
+     */
+    public boolean isFull() {
+        return size() == capacity;
+    }
+
+    /**
+     * Returns the number of elements currently stored in the deque (best-effort).
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return Number of elements.
+     */
+    public int size() {
+        // Reading head first means a concurrent pop can only make the result too big
+        long head = (long) COUNTERS.getAcquire(counters, HEAD);
+        long tail = (long) COUNTERS.getAcquire(counters, TAIL);
+        return (int) Math.max(0, Math.min(capacity, tail - head));
+    }
+
+    /**
+     * Adds an element at the right of the deque if there is room. Producer
+     * thread only.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param e Element to add
+     * @return true if the element was added, false if the deque was full
+     * @throws NullPointerException if e is null
+     */
+    public boolean offer(T e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long tail = counters[TAIL];
+        if (tail - counters[HEAD_CACHE] >= capacity) {
+            counters[HEAD_CACHE] = (long) COUNTERS.getAcquire(counters, HEAD);
+            if (tail - counters[HEAD_CACHE] >= capacity) {
+                return false;
+            }
+        }
+        slots[(int) tail & mask] = e;
+        // Ordered store: the slot write above becomes visible no later than tail
+        COUNTERS.setRelease(counters, TAIL, tail + 1);
+        return true;
+    }
+
+    /**
+     * Returns the element at the left of the deque, but does not remove it.
+     * Consumer thread only.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the leftmost element, or null if the deque is empty
+     */
+    public T peek() {
+        long head = counters[HEAD];
+        if (!isPublished(head)) {
+            return null;
+        }
+        return (T) slots[(int) head & mask];
+    }
+
+    /**
+     * Removes and returns the element at the left of the deque. Consumer thread only.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the leftmost element, or null if the deque is empty
+     */
+    public T poll() {
+        long head = counters[HEAD];
+        if (!isPublished(head)) {
+            return null;
+        }
+        int index = (int) head & mask;
+        T element = (T) slots[index];
+        SLOTS.setOpaque(slots, index, null);
+        COUNTERS.setRelease(counters, HEAD, head + 1);
+        return element;
+    }
+
+    /**
+     * Returns a weakly consistent iterator in left to right sequence. It walks
+     * the positions present when it was created and skips slots that have
+     * since been emptied.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1)
+     * @returns an iterator over the elements in in order from leftmost to rightmost.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        long head = (long) COUNTERS.getAcquire(counters, HEAD);
+        long tail = (long) COUNTERS.getAcquire(counters, TAIL);
+        return new SnapshotIterator(head, tail, 1);
+    }
+
+    /**
+     * Returns a weakly consistent iterator in right to left sequence. It walks
+     * the positions present when it was created and skips slots that have
+     * since been emptied.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1)
+     * @returns an iterator over the elements in in order from rightmost to leftmost.
+     */
+    public Iterator<T> reverseIterator() {
+        long head = (long) COUNTERS.getAcquire(counters, HEAD);
+        long tail = (long) COUNTERS.getAcquire(counters, TAIL);
+        return new SnapshotIterator(tail - 1, head - 1, -1);
+    }
+
+    /**
+     * Checks whether the producer has published position head, refreshing
+     * the consumer's copy of the tail only when the cached one says it has not.
+     * @return false if the deque is empty
+     */
+    private boolean isPublished(long head) {
+        if (head >= counters[TAIL_CACHE]) {
+            counters[TAIL_CACHE] = (long) COUNTERS.getAcquire(counters, TAIL);
+            return head < counters[TAIL_CACHE];
+        }
+        return true;
+    }
+
+    private class SnapshotIterator implements Iterator<T> {
+        private long position;
+        private final long end;
+        private final int step;
+        private T next;
+
+        private SnapshotIterator(long start, long end, int step) {
+            this.position = start;
+            this.end = Math.abs(end - start) > capacity ? start + (long) step * capacity : end;
+            this.step = step;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            T element = next;
+            advance();
+            return element;
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && position != end) {
+                next = (T) SLOTS.getAcquire(slots, (int) position & mask);
+                position += step;
+            }
+        }
+    }
+}
@@ -0,0 +1,320 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe deque with unlimited capacity made of several independently
+ * locked SimpleArrayDeque stripes.
+ *
+ * Each thread is mapped to a home stripe by a hash of its id. Pushes always go
+ * to the home stripe, and pops take from it first, only stealing from the
+ * other stripes (in turn) once it is empty. Threads with different home
+ * stripes therefore never contend, so throughput grows with the number of
+ * stripes instead of queueing on one lock. Each stripe publishes its size in
+ * a shared long array, so pops and peeks skip empty stripes without locking
+ * them. The sizes are 16 longs (128 bytes) apart, with as much padding
+ * before the first and after the last, so no two stripes' sizes share a cache
+ * line (or an adjacent-line prefetch pair). Array elements, unlike fields,
+ * stay in index order.
+ *
+ * There is no global order: elements are only ordered relative to others in
+ * the same stripe. size() is kept in a LongAdder and may be momentarily off
+ * while other threads are pushing or popping; the peeks and iterators are
+ * best-effort snapshots.
+ * Null elements are not permitted.
+ * Memory Complexity: O(size + stripes) + O(1) = O(size + stripes)
+ * @param <T> The type of array elements.
+ */
+public class StripedDeque<T> implements SimpleDeque<T> {
+    private static final int MAX_STRIPES = 1 << 16;
+    private static final VarHandle SIZES = MethodHandles.arrayElementVarHandle(long[].class);
+    // Distance in longs between two stripes' sizes
+    private static final int PAD = 16;
+
+    private final Stripe<T>[] stripes;
+    // stripes.length - 1, used to map a thread hash to a stripe
+    private final int mask;
+    // Size of stripe i at (i + 1) * PAD, written under its lock and read
+    // without it as a hint that the stripe is non-empty
+    private final long[] sizes;
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Constructs a new striped deque with one stripe per available processor
+     * (rounded up to a power of two).
+     * Time complexity: O(stripes)
+     * Memory complexity: O(stripes)
+     */
+    public StripedDeque() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a new striped deque with at least the given number of stripes
+     * (rounded up to a power of two).
+     * Time complexity: O(stripes)
+     * Memory complexity: O(stripes)
+     * @param stripes the minimum number of stripes
+     * @throws IllegalArgumentException if stripes <= 0
+     */
+    public StripedDeque(int stripes) throws IllegalArgumentException {
+        if (stripes <= 0 || stripes > MAX_STRIPES) {
+            throw new IllegalArgumentException();
+        }
+        int length = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        // Generic arrays cannot be created directly; every element is a Stripe<T>
+        @SuppressWarnings("unchecked")
+        Stripe<T>[] array = (Stripe<T>[]) new Stripe<?>[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = new Stripe<>();
+        }
+        this.stripes = array;
+        this.mask = length - 1;
+        this.sizes = new long[(length + 2) * PAD];
+    }
+
+    /**
+     * Returns the number of stripes.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return Number of stripes.
+     */
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Returns whether the deque is empty (best-effort).
+     * Time complexity: O(number of cells in the counter)
+     * Memory complexity: O(1)
+     * @return true if the deque is empty, otherwise false.
+     */
+    @Override
+    public boolean isEmpty() {
+        return count.sum() <= 0;
+    }
+
+    /**
+     * Returns whether the deque is full. A striped deque is never full.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return false
+     */
+    @Override
+    public boolean isFull() {
+        return false;
+    }
+
+    /**
+     * Returns the number of elements currently stored in the deque (best-effort).
+     * Time complexity: O(number of cells in the counter)
+     * Memory complexity: O(1)
+     * @return Number of elements.
+     */
+    @Override
+    public int size() {
+        long n = count.sum();
+        return n <= 0 ? 0 : (int) Math.min(n, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Pushes an element to the left of the calling thread's stripe.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @throws NullPointerException if e is null
+     */
+    @Override
+    public void pushLeft(T e) throws RuntimeException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        int index = home();
+        Stripe<T> stripe = stripes[index];
+        stripe.lock.lock();
+        try {
+            stripe.deque.pushLeft(e);
+            publishSize(index, stripe);
+        } finally {
+            stripe.lock.unlock();
+        }
+        count.increment();
+    }
+
+    /**
+     * Pushes an element to the right of the calling thread's stripe.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @throws NullPointerException if e is null
+     */
+    @Override
+    public void pushRight(T e) throws RuntimeException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        int index = home();
+        Stripe<T> stripe = stripes[index];
+        stripe.lock.lock();
+        try {
+            stripe.deque.pushRight(e);
+            publishSize(index, stripe);
+        } finally {
+            stripe.lock.unlock();
+        }
+        count.increment();
+    }
+
+    /**
+     * Returns the leftmost element of the first non-empty stripe, starting at
+     * the calling thread's stripe, but does not remove it (best-effort).
+     * Time complexity: O(stripes) (only non-empty stripes are locked)
+     * Memory complexity: O(1)
+     * @returns a leftmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T peekLeft() throws NoSuchElementException {
+        return take(true, false);
+    }
+
+    /**
+     * Returns the rightmost element of the first non-empty stripe, starting at
+     * the calling thread's stripe, but does not remove it (best-effort).
+     * Time complexity: O(stripes) (only non-empty stripes are locked)
+     * Memory complexity: O(1)
+     * @returns a rightmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T peekRight() throws NoSuchElementException {
+        return take(false, false);
+    }
+
+    /**
+     * Removes and returns the element at the left of the calling thread's
+     * stripe, or steals the leftmost element of another stripe if it is empty.
+     * Time complexity: O(1) from the home stripe, O(stripes) when stealing
+     * (only non-empty stripes are locked)
+     * Memory complexity: O(1)
+     * @returns a leftmost element
+     * @throws NoSuchElementException if every stripe is empty
+     */
+    @Override
+    public T popLeft() throws NoSuchElementException {
+        return take(true, true);
+    }
+
+    /**
+     * Removes and returns the element at the right of the calling thread's
+     * stripe, or steals the rightmost element of another stripe if it is empty.
+     * Time complexity: O(1) from the home stripe, O(stripes) when stealing
+     * (only non-empty stripes are locked)
+     * Memory complexity: O(1)
+     * @returns a rightmost element
+     * @throws NoSuchElementException if every stripe is empty
+     */
+    @Override
+    public T popRight() throws NoSuchElementException {
+        return take(false, true);
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the deque, visiting each stripe
+     * left to right in stripe order.
+     * Time complexity: O(size + stripes) to take the snapshot, then O(1) per element
+     * Memory complexity: O(size)
+     * @returns an iterator over the elements, stripe by stripe.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return snapshot().iterator();
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the deque in the exact reverse
+     * order of iterator().
+     * Time complexity: O(size + stripes) to take the snapshot, then O(1) per element
+     * Memory complexity: O(size)
+     * @returns an iterator over the elements, stripe by stripe in reverse.
+     */
+    @Override
+    public Iterator<T> reverseIterator() {
+        return snapshot().reverseIterator();
+    }
+
+    /**
+     * Looks for an element at one end of each stripe in turn, starting at the
+     * calling thread's home stripe. Stripes whose published size is 0 are
+     * skipped without taking their lock, so polling an empty deque is lock-free.
+     * @param left whether to use the left end of the stripes
+     * @param remove whether to pop the element rather than peek it
+     * @throws NoSuchElementException if every stripe was empty when visited
+     */
+    private T take(boolean left, boolean remove) throws NoSuchElementException {
+        int start = home();
+        for (int i = 0; i < stripes.length; i++) {
+            int index = (start + i) & mask;
+            if ((long) SIZES.getAcquire(sizes, (index + 1) * PAD) == 0) {
+                continue;
+            }
+            Stripe<T> stripe = stripes[index];
+            stripe.lock.lock();
+            try {
+                if (stripe.deque.isEmpty()) {
+                    continue;
+                }
+                if (!remove) {
+                    return left ? stripe.deque.peekLeft() : stripe.deque.peekRight();
+                }
+                T element = left ? stripe.deque.popLeft() : stripe.deque.popRight();
+                publishSize(index, stripe);
+                count.decrement();
+                return element;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        throw new NoSuchElementException();
+    }
+
+    private SimpleArrayDeque<T> snapshot() {
+        SimpleArrayDeque<T> copy = new SimpleArrayDeque<>();
+        for (Stripe<T> stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                copy.pushAllRight(stripe.deque);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Publishes a stripe's size after a push or pop. Must hold its lock.
+     */
+    private void publishSize(int index, Stripe<T> stripe) {
+        SIZES.setRelease(sizes, (index + 1) * PAD, (long) stripe.deque.size());
+    }
+
+    /**
+     * Maps the calling thread to its home stripe.
+     */
+    private int home() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * A deque and the lock guarding it.
+     */
+    private static class Stripe<T> {
+        final ReentrantLock lock = new ReentrantLock();
+        final SimpleArrayDeque<T> deque = new SimpleArrayDeque<>();
+    }
+}
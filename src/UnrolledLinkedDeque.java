@@ -0,0 +1,353 @@
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * Deque using an unrolled linked list.
+ * Each Block holds up to BLOCK_SIZE elements between a left and a right offset,
+ * so a new node is only allocated once per BLOCK_SIZE pushes rather than once
+ * per push, and neighbouring elements share a cache-friendly array.
+ * One emptied Block is kept spare at each end, so pushing and popping back and
+ * forth across a block boundary does not allocate a Block every time.
+ * Memory Complexity: O(size + BLOCK_SIZE) + O(1) = O(size)
+ * @param <T> The type of array elements.
+ */
+public class UnrolledLinkedDeque<T> implements SimpleDeque<T> {
+    private static final int BLOCK_SIZE = 64;
+
+    private Block first;
+    private Block last;
+    // Emptied blocks kept for the next push that needs a new block at each end
+    private Block spareLeft;
+    private Block spareRight;
+    private int size;
+    private int capacity;
+    // Number of structural modifications, used by the iterators to fail fast
+    private int modCount;
+
+    /**
+     * Constructs a new unrolled deque with unlimited capacity.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     */
+    public UnrolledLinkedDeque() {
+        first = last = null;
+        size = 0;
+        capacity = -1;
+    }
+
+    /**
+     * Constructs a new unrolled deque with limited capacity.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @param capacity the capacity
+     * @throws IllegalArgumentException if capacity <= 0
+     */
+    public UnrolledLinkedDeque(int capacity) throws IllegalArgumentException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        first = last = null;
+        size = 0;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns whether the deque is empty.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the deque is empty, otherwise false.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns whether the deque is full.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the deque is full, otherwise false.
+     */
+    @Override
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Returns the number of elements currently stored in the deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return Number of elements.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Pushes an element to the left of the deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1) amortised (one Block per BLOCK_SIZE pushes)
+     * @param e Element to push
+     * @throws RuntimeException if the deque is already full
+     */
+    @Override
+    public void pushLeft(T e) throws RuntimeException {
+        if (isFull()) {
+            throw new RuntimeException();
+        }
+        if (first == null) {
+            first = last = new Block(BLOCK_SIZE / 2);
+        } else if (first.left == 0) {
+            // Current block is full on the left, link a new one before it
+            Block block = spareLeft != null ? spareLeft : new Block(BLOCK_SIZE);
+            spareLeft = null;
+            block.next = first;
+            first.prev = block;
+            first = block;
+        }
+        first.items[--first.left] = e;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Pushes an element to the right of the deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1) amortised (one Block per BLOCK_SIZE pushes)
+     * @param e Element to push
+     * @throws RuntimeException if the deque is already full
+     */
+    @Override
+    public void pushRight(T e) throws RuntimeException {
+        if (isFull()) {
+            throw new RuntimeException();
+        }
+        if (last == null) {
+            first = last = new Block(BLOCK_SIZE / 2);
+        } else if (last.right == BLOCK_SIZE) {
+            Block block = spareRight != null ? spareRight : new Block(0);
+            spareRight = null;
+            block.prev = last;
+            last.next = block;
+            last = block;
+        }
+        last.items[last.right++] = e;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Returns the element at the left of the deque, but does not remove it.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the leftmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T peekLeft() throws NoSuchElementException {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return (T) first.items[first.left];
+    }
+
+    /**
+     * Returns the element at the right of the deque, but does not remove it.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the rightmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T peekRight() throws NoSuchElementException {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return (T) last.items[last.right - 1];
+    }
+
+    /**
+     * Removes and returns the element at the left of the deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the leftmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T popLeft() throws NoSuchElementException {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        T element = (T) first.items[first.left];
+        first.items[first.left++] = null;
+        size--;
+        modCount++;
+        if (first.left == first.right) {
+            unlinkFirst();
+        }
+        return element;
+    }
+
+    /**
+     * Removes and returns the element at the right of the deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the rightmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    @Override
+    public T popRight() throws NoSuchElementException {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        T element = (T) last.items[--last.right];
+        last.items[last.right] = null;
+        size--;
+        modCount++;
+        if (last.left == last.right) {
+            unlinkLast();
+        }
+        return element;
+    }
+
+    /**
+     * Returns an iterator for the deque in left to right sequence.
+     * The iterator fails fast with a ConcurrentModificationException if the
+     * deque is modified after it is created.
+     * Time complexity: O(1) (for each call to next())
+     * Memory complexity: O(1)
+     * @returns an iterator over the elements in in order from leftmost to rightmost.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            Block block = first;
+            int index = first == null ? 0 : first.left;
+            int remaining = size;
+            final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public T next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (index == block.right) {
+                    block = block.next;
+                    index = block.left;
+                }
+                remaining--;
+                return (T) block.items[index++];
+            }
+        };
+    }
+
+    /**
+     * Returns an iterator for the deque in right to left sequence.
+     * The iterator fails fast with a ConcurrentModificationException if the
+     * deque is modified after it is created.
+     * Time complexity: O(1) (for each call to next())
+     * Memory complexity: O(1)
+     * @returns an iterator over the elements in in order from rightmost to leftmost.
+     */
+    @Override
+    public Iterator<T> reverseIterator() {
+        return new Iterator<T>() {
+            Block block = last;
+            // One past the next element to return
+            int index = last == null ? 0 : last.right;
+            int remaining = size;
+            final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public T next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (index == block.left) {
+                    block = block.prev;
+                    index = block.right;
+                }
+                remaining--;
+                return (T) block.items[--index];
+            }
+        };
+    }
+
+    /**
+     * Returns a spliterator over the elements in left to right sequence, which
+     * splits by copying batches of elements into arrays.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns a SIZED, SUBSIZED and ORDERED spliterator of the deque.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED);
+    }
+
+    /**
+     * Unlinks the emptied first block and keeps it as the left spare. The last
+     * remaining block is kept and recentred so that alternating push/pop on
+     * one element does not allocate.
+     */
+    private void unlinkFirst() {
+        if (first == last) {
+            first.left = first.right = BLOCK_SIZE / 2;
+            return;
+        }
+        Block block = first;
+        first = block.next;
+        first.prev = null;
+        block.next = null;
+        // Its slots were cleared as they were popped
+        block.left = block.right = BLOCK_SIZE;
+        spareLeft = block;
+    }
+
+    private void unlinkLast() {
+        if (first == last) {
+            last.left = last.right = BLOCK_SIZE / 2;
+            return;
+        }
+        Block block = last;
+        last = block.prev;
+        last.next = null;
+        block.prev = null;
+        block.left = block.right = 0;
+        spareRight = block;
+    }
+
+    private static class Block {
+        final Object[] items = new Object[BLOCK_SIZE];
+        // Occupied slots are [left, right)
+        int left;
+        int right;
+        Block next;
+        Block prev;
+
+        private Block(int offset) {
+            this.left = offset;
+            this.right = offset;
+        }
+    }
+}
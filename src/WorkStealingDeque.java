@@ -0,0 +1,297 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Chase-Lev work-stealing Circular Deque Array with unlimited capacity.
+ *
+ * A single owner thread pushes and pops at the right without locking; any
+ * number of thief threads may take elements from the left, racing each other
+ * (and the owner, for the last element) with a CAS on the left index.
+ * The backing array has a power of two length and is doubled by the owner
+ * when it fills, in the same way as SimpleArrayDeque.
+ *
+ * This is not a SimpleDeque: the two ends have different owners, and nothing
+ * may push to the left, since the left index only ever moves right (which is
+ * what keeps a thief's CAS free of ABA). pushRight, popRight and peekRight
+ * must only be called by the owner thread; popLeft and peekLeft may be called
+ * by any thread. size(), isEmpty(), peekLeft() and the iterators are
+ * best-effort when called by a thief.
+ *
+ * A thief cannot clear the slot it stole from, since the owner may already be
+ * reusing it, so the owner clears stolen slots on its next push or pop.
+ * Null elements are not permitted.
+ * Memory Complexity: O(size) + O(1) = O(size)
+ * @param <T> The type of array elements.
+ */
+public class WorkStealingDeque<T> implements Iterable<T> {
+    private static final VarHandle TOP;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAX_ARRAY_LENGTH = 1 << 30;
+
+    static {
+        try {
+            TOP = MethodHandles.lookup().findVarHandle(WorkStealingDeque.class, "top", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Index of the leftmost element, only ever incremented (by CAS)
+    private volatile long top;
+    // Index one past the rightmost element, only written by the owner
+    private volatile long bottom;
+    private volatile Object[] arr;
+    // Stolen slots below this index have been cleared, only used by the owner
+    private long cleared;
+
+    /**
+     * Constructs a new work-stealing deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     */
+    public WorkStealingDeque() {
+        this.arr = new Object[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Returns whether the deque is empty.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return true if the deque is empty, otherwise false.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of elements currently stored in the deque.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @return Number of elements.
+     */
+    public int size() {
+        long n = bottom - top;
+        return n <= 0 ? 0 : (int) n;
+    }
+
+    /**
+     * Pushes an element to the right of the deque. Owner thread only.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1)
+     * @param e Element to push
+     * @throws NullPointerException if e is null
+     * @throws RuntimeException if the backing array cannot grow any further
+     */
+    public void pushRight(T e) throws RuntimeException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long b = bottom;
+        long t = top;
+        Object[] a = arr;
+        if (b - t >= a.length) {
+            a = grow(a, t, b);
+        } else {
+            clearStolen(a, t);
+        }
+        SLOTS.setRelease(a, (int) b & (a.length - 1), e);
+        // Publishing bottom makes the element visible to thieves
+        bottom = b + 1;
+    }
+
+    /**
+     * Returns the element at the left of the deque, but does not remove it.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the leftmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public T peekLeft() throws NoSuchElementException {
+        long t = top;
+        if (bottom - t <= 0) {
+            throw new NoSuchElementException();
+        }
+        Object[] a = arr;
+        return (T) SLOTS.getAcquire(a, (int) t & (a.length - 1));
+    }
+
+    /**
+     * Returns the element at the right of the deque, but does not remove it.
+     * Owner thread only.
+     * Time complexity: O(1)
+     * Memory complexity: O(1)
+     * @returns the rightmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public T peekRight() throws NoSuchElementException {
+        long b = bottom - 1;
+        if (b - top < 0) {
+            throw new NoSuchElementException();
+        }
+        Object[] a = arr;
+        return (T) SLOTS.getAcquire(a, (int) b & (a.length - 1));
+    }
+
+    /**
+     * Steals and returns the element at the left of the deque. Safe to call
+     * from any thread; retries if it loses a race with another thief. The
+     * slot is left for the owner to clear.
+     * Time complexity: O(1) (lock-free, retried on contention)
+     * Memory complexity: O(1)
+     * @returns the leftmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public T popLeft() throws NoSuchElementException {
+        while (true) {
+            long t = top;
+            long b = bottom;
+            if (b - t <= 0) {
+                throw new NoSuchElementException();
+            }
+            Object[] a = arr;
+            Object element = SLOTS.getAcquire(a, (int) t & (a.length - 1));
+            if (TOP.compareAndSet(this, t, t + 1)) {
+                return (T) element;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Removes and returns the element at the right of the deque. Owner thread only.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1)
+     * @returns the rightmost element
+     * @throws NoSuchElementException if the deque is empty
+     */
+    public T popRight() throws NoSuchElementException {
+        long b = bottom - 1;
+        Object[] a = arr;
+        clearStolen(a, top);
+        // The volatile write of bottom must be ordered before the read of top
+        bottom = b;
+        long t = top;
+        if (b - t < 0) {
+            bottom = b + 1;
+            throw new NoSuchElementException();
+        }
+        int index = (int) b & (a.length - 1);
+        Object element = SLOTS.getAcquire(a, index);
+        if (b - t > 0) {
+            SLOTS.setRelease(a, index, null);
+            return (T) element;
+        }
+        // Last element: race the thieves for it. The slot is cleared later either way
+        boolean won = TOP.compareAndSet(this, t, t + 1);
+        bottom = b + 1;
+        if (!won) {
+            throw new NoSuchElementException();
+        }
+        return (T) element;
+    }
+
+    /**
+     * Returns a weakly consistent iterator in left to right sequence. It walks
+     * the positions present when it was created and skips slots that have
+     * since been cleared.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1)
+     * @returns an iterator over the elements in in order from leftmost to rightmost.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new SnapshotIterator(top, bottom, 1);
+    }
+
+    /**
+     * Returns a weakly consistent iterator in right to left sequence. It walks
+     * the positions present when it was created and skips slots that have
+     * since been cleared.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1)
+     * @returns an iterator over the elements in in order from rightmost to leftmost.
+     */
+    public Iterator<T> reverseIterator() {
+        long t = top;
+        long b = bottom;
+        return new SnapshotIterator(b - 1, t - 1, -1);
+    }
+
+    /**
+     * Doubles the backing array, copying the live range [t, b). Thieves still
+     * reading the old array see the same elements at the same indices, and
+     * the stolen slots are left behind with it.
+     * Time complexity: O(size)
+     * Memory complexity: O(size)
+     */
+    private Object[] grow(Object[] a, long t, long b) {
+        if (a.length >= MAX_ARRAY_LENGTH) {
+            throw new RuntimeException();
+        }
+        Object[] bigger = new Object[a.length << 1];
+        int oldMask = a.length - 1;
+        int newMask = bigger.length - 1;
+        for (long i = t; i < b; i++) {
+            bigger[(int) i & newMask] = SLOTS.getAcquire(a, (int) i & oldMask);
+        }
+        cleared = t;
+        arr = bigger;
+        return bigger;
+    }
+
+    /**
+     * Clears the slots of elements stolen since the last call, so that they
+     * can be garbage collected before the ring wraps round to them. Owner
+     * thread only. A thief which still reads one of these slots has a stale
+     * left index, so its CAS fails and it discards what it read.
+     * Time complexity: O(1) amortised
+     * Memory complexity: O(1)
+     */
+    private void clearStolen(Object[] a, long t) {
+        int mask = a.length - 1;
+        for (; cleared < t; cleared++) {
+            SLOTS.setRelease(a, (int) cleared & mask, null);
+        }
+    }
+
+    private class SnapshotIterator implements Iterator<T> {
+        private final Object[] a = arr;
+        private final long end;
+        private final int step;
+        private long index;
+        private T next;
+
+        private SnapshotIterator(long start, long end, int step) {
+            this.index = start;
+            this.end = end;
+            this.step = step;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            T element = next;
+            advance();
+            return element;
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && (step > 0 ? index < end : index > end)) {
+                next = (T) SLOTS.getAcquire(a, (int) index & (a.length - 1));
+                index += step;
+            }
+        }
+    }
+}
@@ -1,9 +1,34 @@
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.ObjectName;
 
 import static org.junit.Assert.*;
 
@@ -419,4 +444,1377 @@ public class DequeSampleTest {
 
         assertArrayEquals(expected, arr);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void growableArrayDequeWrapsAndGrows() {
+        SimpleArrayDeque<Integer> deque = new SimpleArrayDeque<>();
+        Integer[] expected = new Integer[100];
+        for (int i = 0; i < 50; i++) {
+            deque.pushLeft(49 - i);
+            deque.pushRight(50 + i);
+            expected[i] = i;
+            expected[50 + i] = 50 + i;
+        }
+        assertFalse(deque.isFull());
+        assertEquals(100, deque.size());
+
+        Integer[] actual = new Integer[100];
+        int i = 0;
+        Iterator<Integer> iter = deque.iterator();
+        while (iter.hasNext()) {
+            actual[i++] = iter.next();
+        }
+        assertArrayEquals(expected, actual);
+        assertEquals(Integer.valueOf(99), deque.popRight());
+        assertEquals(Integer.valueOf(0), deque.popLeft());
+    }
+
+    @Test
+    public void fixedArrayDequeNonPowerOfTwoCapacity() {
+        SimpleArrayDeque<Integer> deque = new SimpleArrayDeque<>(3);
+        deque.pushLeft(2);
+        deque.pushLeft(1);
+        deque.pushRight(3);
+        assertTrue(deque.isFull());
+        assertEquals(Integer.valueOf(3), deque.popRight());
+        assertEquals(Integer.valueOf(2), deque.popRight());
+        assertEquals(Integer.valueOf(1), deque.popRight());
+        assertTrue(deque.isEmpty());
+    }
+
+    @Test
+    public void intArrayDequePushPopIterate() {
+        IntArrayDeque deque = new IntArrayDeque();
+        for (int i = 0; i < 40; i++) {
+            deque.pushRight(i);
+        }
+        deque.pushLeft(-1);
+        assertEquals(41, deque.size());
+        assertEquals(-1, deque.peekLeft());
+        assertEquals(39, deque.peekRight());
+
+        PrimitiveIterator.OfInt iter = deque.reverseIterator();
+        int expected = 39;
+        while (iter.hasNext()) {
+            assertEquals(expected--, iter.nextInt());
+        }
+        assertEquals(-2, expected);
+        assertEquals(-1, deque.popLeft());
+        assertEquals(39, deque.popRight());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void longArrayDequeFull() {
+        LongArrayDeque deque = new LongArrayDeque(2);
+        deque.pushLeft(1L);
+        deque.pushRight(2L);
+        assertTrue(deque.isFull());
+        deque.pushRight(3L);
+    }
+
+    @Test
+    public void recordArrayDequeViews() {
+        RecordArrayDeque deque = new RecordArrayDeque(16, 3);
+        ByteBuffer record = ByteBuffer.allocate(16);
+        for (long i = 1; i <= 3; i++) {
+            record.putLong(0, i).putLong(8, i * 10);
+            deque.pushRight(record);
+        }
+        assertTrue(deque.isFull());
+        assertEquals(0, record.position());
+
+        assertEquals(1L, deque.peekLeft().getLong(0));
+        assertEquals(30L, deque.peekRight().getLong(8));
+
+        ByteBuffer dest = ByteBuffer.allocate(16);
+        deque.popLeft(dest);
+        assertEquals(16, dest.position());
+        assertEquals(10L, dest.getLong(8));
+        assertEquals(3L, deque.popRight().getLong(0));
+        assertEquals(1, deque.size());
+    }
+
+    @Test
+    public void mappedRecordDequeRestoresAfterReopen() throws IOException {
+        Path file = Files.createTempFile("deque", ".bin");
+        try {
+            ByteBuffer record = ByteBuffer.allocate(8);
+            try (MappedRecordDeque deque = new MappedRecordDeque(file, 8, 4,
+                    MappedRecordDeque.ForcePolicy.ON_CLOSE, 0)) {
+                for (long i = 1; i <= 4; i++) {
+                    deque.pushLeft(record.putLong(0, i));
+                }
+                deque.popRight();
+            }
+            try (MappedRecordDeque deque = new MappedRecordDeque(file, 8, 4)) {
+                assertEquals(3, deque.size());
+                assertEquals(4L, deque.popLeft().getLong(0));
+                assertEquals(2L, deque.popRight().getLong(0));
+            }
+            // Same number of slots, different capacity
+            try {
+                new MappedRecordDeque(file, 8, 3).close();
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void concurrentArrayDequeBothEnds() {
+        ConcurrentArrayDeque<Integer> deque = new ConcurrentArrayDeque<>(3);
+        deque.pushLeft(2);
+        deque.pushRight(3);
+        deque.pushLeft(1);
+        assertTrue(deque.isFull());
+        assertEquals(Integer.valueOf(1), deque.peekLeft());
+
+        Iterator<Integer> iter = deque.reverseIterator();
+        assertEquals(Integer.valueOf(3), iter.next());
+        assertEquals(Integer.valueOf(2), iter.next());
+        assertEquals(Integer.valueOf(1), iter.next());
+        assertFalse(iter.hasNext());
+
+        assertEquals(Integer.valueOf(3), deque.popRight());
+        assertEquals(Integer.valueOf(1), deque.popLeft());
+        assertEquals(Integer.valueOf(2), deque.popLeft());
+        assertTrue(deque.isEmpty());
+    }
+
+    @Test
+    public void concurrentArrayDequeNoLostElements() throws InterruptedException {
+        ConcurrentArrayDeque<Integer> deque = new ConcurrentArrayDeque<>(64);
+        int perThread = 20000;
+        AtomicLong popped = new AtomicLong();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            boolean left = t % 2 == 0;
+            threads[t] = new Thread(() -> {
+                for (int i = 1; i <= perThread; i++) {
+                    while (true) {
+                        try {
+                            if (left) {
+                                deque.pushLeft(i);
+                            } else {
+                                deque.pushRight(i);
+                            }
+                            break;
+                        } catch (RuntimeException e) {
+                            Thread.yield();
+                        }
+                    }
+                    while (true) {
+                        try {
+                            popped.addAndGet(left ? deque.popRight() : deque.popLeft());
+                            break;
+                        } catch (NoSuchElementException e) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long expected = (long) threads.length * perThread * (perThread + 1) / 2;
+        assertEquals(expected, popped.get());
+        assertTrue(deque.isEmpty());
+    }
+
+    @Test
+    public void concurrentArrayDequePeeksNeverSeeClearedSlots() throws InterruptedException {
+        // A tiny capacity makes every thread finish other threads' slot writes
+        ConcurrentArrayDeque<Integer> deque = new ConcurrentArrayDeque<>(2);
+        AtomicLong pushed = new AtomicLong();
+        AtomicLong popped = new AtomicLong();
+        AtomicLong nullPeeks = new AtomicLong();
+        Thread[] threads = new Thread[6];
+        for (int t = 0; t < threads.length; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(id);
+                for (int i = 1; i <= 20000; i++) {
+                    try {
+                        switch (random.nextInt(6)) {
+                            case 0:
+                                deque.pushLeft(i);
+                                pushed.addAndGet(i);
+                                break;
+                            case 1:
+                                deque.pushRight(i);
+                                pushed.addAndGet(i);
+                                break;
+                            case 2:
+                                popped.addAndGet(deque.popLeft());
+                                break;
+                            case 3:
+                                popped.addAndGet(deque.popRight());
+                                break;
+                            case 4:
+                                nullPeeks.addAndGet(deque.peekLeft() == null ? 1 : 0);
+                                break;
+                            default:
+                                nullPeeks.addAndGet(deque.peekRight() == null ? 1 : 0);
+                                break;
+                        }
+                    } catch (NoSuchElementException e) {
+                        // Empty
+                    } catch (RuntimeException e) {
+                        // Full
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        while (!deque.isEmpty()) {
+            popped.addAndGet(deque.popLeft());
+        }
+        assertEquals(pushed.get(), popped.get());
+        assertEquals(0, nullPeeks.get());
+    }
+
+    @Test
+    public void workStealingDequeOwnerAndThief() {
+        WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+        for (int i = 0; i < 40; i++) {
+            deque.pushRight(i);
+        }
+        assertEquals(40, deque.size());
+        assertEquals(Integer.valueOf(0), deque.popLeft());
+        assertEquals(Integer.valueOf(39), deque.popRight());
+        assertEquals(Integer.valueOf(1), deque.peekLeft());
+        assertEquals(Integer.valueOf(38), deque.peekRight());
+
+        Iterator<Integer> iter = deque.iterator();
+        for (int i = 1; i < 39; i++) {
+            assertEquals(Integer.valueOf(i), iter.next());
+        }
+        assertFalse(iter.hasNext());
+    }
+
+    @Test
+    public void workStealingDequeReusesStolenSlots() {
+        WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+        // Wrap round the ring many times without growing it
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 10; i++) {
+                deque.pushRight(round * 10 + i);
+            }
+            for (int i = 0; i < 10; i++) {
+                assertEquals(Integer.valueOf(round * 10 + i), deque.popLeft());
+            }
+        }
+        assertTrue(deque.isEmpty());
+        assertFalse(deque.iterator().hasNext());
+        deque.pushRight(1000);
+        assertEquals(Integer.valueOf(1000), deque.popRight());
+    }
+
+    @Test
+    public void linkedDequeCopyLargeDeque() {
+        SimpleLinkedDeque<Integer> deque = new SimpleLinkedDeque<>();
+        for (int i = 0; i < 100000; i++) {
+            deque.pushRight(i);
+        }
+        SimpleLinkedDeque<Integer> copy = new SimpleLinkedDeque<>(deque);
+        Iterator<Integer> iter = copy.reverseIterator();
+        for (int i = 99999; i >= 0; i--) {
+            assertEquals(Integer.valueOf(i), iter.next());
+        }
+        assertFalse(iter.hasNext());
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void linkedDequeIteratorFailsFast() {
+        Iterator<Integer> iter = linkedDeque.iterator();
+        iter.next();
+        linkedDeque.popLeft();
+        iter.next();
+    }
+
+    @Test
+    public void unrolledDequeAcrossBlocks() {
+        UnrolledLinkedDeque<Integer> deque = new UnrolledLinkedDeque<>();
+        for (int i = 0; i < 150; i++) {
+            deque.pushLeft(149 - i);
+            deque.pushRight(150 + i);
+        }
+        assertEquals(300, deque.size());
+
+        Iterator<Integer> iter = deque.iterator();
+        for (int i = 0; i < 300; i++) {
+            assertEquals(Integer.valueOf(i), iter.next());
+        }
+        iter = deque.reverseIterator();
+        for (int i = 299; i >= 0; i--) {
+            assertEquals(Integer.valueOf(i), iter.next());
+        }
+        for (int i = 0; i < 299; i++) {
+            assertEquals(Integer.valueOf(i), deque.popLeft());
+        }
+        assertEquals(Integer.valueOf(299), deque.popRight());
+        assertTrue(deque.isEmpty());
+    }
+
+    @Test
+    public void unrolledDequeOscillatesAcrossBlockBoundary() {
+        UnrolledLinkedDeque<Integer> deque = new UnrolledLinkedDeque<>();
+        // The first block has room for 32 elements on each side of its centre
+        for (int i = 0; i < 32; i++) {
+            deque.pushRight(i);
+            deque.pushLeft(-1 - i);
+        }
+        for (int i = 0; i < 100; i++) {
+            deque.pushRight(32 + i);
+            deque.pushLeft(-33 - i);
+            assertEquals(Integer.valueOf(32 + i), deque.popRight());
+            assertEquals(Integer.valueOf(-33 - i), deque.popLeft());
+        }
+        assertEquals(64, deque.size());
+        Iterator<Integer> iter = deque.iterator();
+        for (int i = -32; i < 32; i++) {
+            assertEquals(Integer.valueOf(i), iter.next());
+        }
+        assertFalse(iter.hasNext());
+    }
+
+    @Test
+    public void linkedDequeNodePoolReusesLinks() {
+        SimpleLinkedDeque<Integer> deque = new SimpleLinkedDeque<>();
+        deque.setNodePoolLimit(4);
+        for (int i = 0; i < 4; i++) {
+            deque.pushRight(i);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), deque.popLeft());
+            deque.pushRight(i + 4);
+        }
+        assertEquals(4, deque.getNodePoolMisses());
+        assertEquals(100, deque.getNodePoolHits());
+        assertEquals(Integer.valueOf(100), deque.peekLeft());
+        assertEquals(Integer.valueOf(103), deque.peekRight());
+    }
+
+    @Test
+    public void linkedDequePopSingleElementPushedFromOtherSide() {
+        SimpleLinkedDeque<Integer> deque = new SimpleLinkedDeque<>();
+        deque.pushRight(1);
+        assertEquals(Integer.valueOf(1), deque.popRight());
+        deque.pushLeft(2);
+        assertEquals(Integer.valueOf(2), deque.popLeft());
+        assertTrue(deque.isEmpty());
+    }
+
+    @Test
+    public void reverseSwapsEndsAndIterators() {
+        SimpleLinkedDeque<Integer> data = new SimpleLinkedDeque<>();
+        ReversibleDeque<Integer> deque = new ReversibleDeque<>(data);
+        for (int i = 1; i <= 3; i++) {
+            deque.pushRight(i);
+        }
+        deque.reverse();
+        deque.pushRight(0);
+
+        Iterator<Integer> iter = deque.iterator();
+        Integer[] actual = new Integer[4];
+        int i = 0;
+        while (iter.hasNext()) {
+            actual[i++] = iter.next();
+        }
+        assertArrayEquals(new Integer[]{3, 2, 1, 0}, actual);
+        assertEquals(Integer.valueOf(0), data.peekLeft());
+
+        deque.reverse();
+        assertEquals(Integer.valueOf(0), deque.popLeft());
+        assertEquals(Integer.valueOf(3), deque.peekRight());
+    }
+
+    @Test
+    public void arrayDequeBulkOperationsWrap() {
+        SimpleArrayDeque<Integer> deque = new SimpleArrayDeque<>(8);
+        deque.pushRight(5);
+        deque.pushAllLeft(new Integer[]{1, 2, 3, 4});
+        deque.pushAllRight(new Integer[]{6, 7});
+        assertEquals(7, deque.size());
+
+        Integer[] dest = new Integer[8];
+        assertEquals(7, deque.popLeft(8, dest));
+        assertArrayEquals(new Integer[]{1, 2, 3, 4, 5, 6, 7, null}, dest);
+        assertTrue(deque.isEmpty());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void arrayDequeBulkPushWithoutRoom() {
+        SimpleArrayDeque<Integer> deque = new SimpleArrayDeque<>(3);
+        deque.pushAllRight(new Integer[]{1, 2, 3, 4});
+    }
+
+    @Test
+    public void reversedDequeBulkPushes() {
+        SimpleArrayDeque<Integer> data = new SimpleArrayDeque<>(8);
+        ReversibleDeque<Integer> deque = new ReversibleDeque<>(data);
+        deque.pushRight(3);
+        deque.pushAllLeft(new Integer[]{1, 2});
+        deque.reverse();
+        // Now reads 3, 2, 1 from the left
+        deque.pushAllRight(new Integer[]{0, -1});
+        SimpleArrayDeque<Integer> other = new SimpleArrayDeque<>();
+        other.pushAllRight(new Integer[]{5, 4});
+        deque.pushAllLeft(other);
+        assertEquals(7, deque.size());
+        // Too many: nothing is pushed
+        try {
+            deque.pushAllLeft(new Integer[]{7, 8});
+            fail();
+        } catch (RuntimeException expected) {
+        }
+        try {
+            deque.pushAllRight(other);
+            fail();
+        } catch (RuntimeException expected) {
+        }
+        Integer[] dest = new Integer[7];
+        assertEquals(7, deque.popLeft(7, dest));
+        assertArrayEquals(new Integer[]{5, 4, 3, 2, 1, 0, -1}, dest);
+    }
+
+    @Test
+    public void drainToSplicesAndCopies() {
+        SimpleLinkedDeque<Integer> source = new SimpleLinkedDeque<>();
+        source.pushAllRight(new Integer[]{3, 4});
+        source.pushAllLeft(new Integer[]{1, 2});
+        SimpleLinkedDeque<Integer> linkedTarget = new SimpleLinkedDeque<>();
+        linkedTarget.pushRight(0);
+        assertEquals(4, source.drainTo(linkedTarget));
+        assertTrue(source.isEmpty());
+
+        SimpleArrayDeque<Integer> arrayTarget = new SimpleArrayDeque<>();
+        arrayTarget.pushAllRight(linkedTarget);
+        SimpleArrayDeque<Integer> fixed = new SimpleArrayDeque<>(3);
+        assertEquals(3, arrayTarget.drainTo(fixed));
+        assertEquals(Integer.valueOf(0), fixed.popLeft());
+        assertEquals(Integer.valueOf(2), fixed.popRight());
+        assertEquals(Integer.valueOf(3), arrayTarget.peekLeft());
+        assertEquals(Integer.valueOf(4), linkedTarget.peekRight());
+        assertEquals(5, linkedTarget.size());
+    }
+
+    @Test
+    public void copyConstructorsPreserveWrappedOrder() {
+        SimpleArrayDeque<Integer> source = new SimpleArrayDeque<>(6);
+        for (int i = 3; i < 6; i++) {
+            source.pushRight(i);
+        }
+        for (int i = 2; i >= 0; i--) {
+            source.pushLeft(i);
+        }
+        SimpleArrayDeque<Integer> arrayCopy = new SimpleArrayDeque<>(10, source);
+        SimpleLinkedDeque<Integer> linkedCopy =
+                new SimpleLinkedDeque<>(new SimpleLinkedDeque<>(source));
+        assertEquals(6, source.size());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(Integer.valueOf(i), arrayCopy.popLeft());
+            assertEquals(Integer.valueOf(i), linkedCopy.popLeft());
+        }
+        assertTrue(arrayCopy.isEmpty());
+        assertTrue(linkedCopy.isEmpty());
+    }
+
+    @Test
+    public void parallelStreamsOverDeques() {
+        SimpleArrayDeque<Integer> arrayDeque = new SimpleArrayDeque<>();
+        SimpleLinkedDeque<Integer> linkedDeque = new SimpleLinkedDeque<>();
+        for (int i = 0; i < 5000; i++) {
+            arrayDeque.pushLeft(4999 - i);
+            linkedDeque.pushRight(i);
+        }
+        long expected = 4999L * 5000 / 2;
+        assertEquals(expected, arrayDeque.parallelStream().mapToLong(i -> i).sum());
+        assertEquals(expected, linkedDeque.parallelStream().mapToLong(i -> i).sum());
+        assertArrayEquals(linkedDeque.stream().toArray(),
+                arrayDeque.parallelStream().toArray());
+
+        Spliterator<Integer> spliterator = arrayDeque.spliterator();
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        assertEquals(2500, prefix.estimateSize());
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED));
+        assertTrue(linkedDeque.spliterator().hasCharacteristics(Spliterator.SIZED));
+
+        // Weakly consistent iterators cannot promise an exact size
+        ConcurrentArrayDeque<Integer> concurrent = new ConcurrentArrayDeque<>(4);
+        concurrent.pushRight(1);
+        assertFalse(concurrent.spliterator().hasCharacteristics(Spliterator.SIZED));
+        assertEquals(1, concurrent.stream().count());
+    }
+
+    @Test(timeout = 10000)
+    public void blockingDequePopWakesSingleProducerBehindBatch() throws Exception {
+        BlockingArrayDeque<Integer> deque = new BlockingArrayDeque<>(10);
+        for (int i = 0; i < 10; i++) {
+            deque.pushRight(i);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // The batch producer waits first, so a single signal would pick it
+            Future<Boolean> batch = executor.submit(() ->
+                    deque.pushAllRight(new Integer[] {10, 11, 12, 13, 14}, 5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            Future<Boolean> single = executor.submit(() ->
+                    deque.pushRight(15, 5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            long start = System.nanoTime();
+            assertEquals(Integer.valueOf(0), deque.popLeft());
+            assertTrue(single.get());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+            assertEquals(Integer.valueOf(15), deque.peekRight());
+            for (int i = 1; i <= 5; i++) {
+                deque.popLeft();
+            }
+            assertTrue(batch.get());
+            assertEquals(10, deque.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void blockingDequeHandsOffBatches() throws InterruptedException {
+        BlockingArrayDeque<Integer> deque = new BlockingArrayDeque<>(4);
+        assertNull(deque.popLeft(10, TimeUnit.MILLISECONDS));
+        deque.pushAllRight(new Integer[] {0, 1, 2, 3});
+        assertFalse(deque.pushRight(4, 10, TimeUnit.MILLISECONDS));
+
+        int total = 1000;
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 4; i < total; i++) {
+                    assertTrue(deque.pushRight(i, 5, TimeUnit.SECONDS));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+
+        SimpleArrayDeque<Integer> received = new SimpleArrayDeque<>();
+        while (received.size() < total) {
+            deque.drainTo(received, 3, 5, TimeUnit.SECONDS);
+        }
+        producer.join();
+        for (int i = 0; i < total; i++) {
+            assertEquals(Integer.valueOf(i), received.popLeft());
+        }
+        assertTrue(deque.isEmpty());
+    }
+
+    @Test(timeout = 10000)
+    public void spscDequeKeepsOrderAcrossThreads() throws InterruptedException {
+        SpscArrayDeque<Integer> deque = new SpscArrayDeque<>(5);
+        assertNull(deque.poll());
+        assertTrue(deque.offer(7));
+        assertEquals(Integer.valueOf(7), deque.peek());
+        assertEquals(Integer.valueOf(7), deque.poll());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(deque.offer(i));
+        }
+        assertFalse(deque.offer(5));
+        Iterator<Integer> reverse = deque.reverseIterator();
+        for (int i = 4; i >= 0; i--) {
+            assertEquals(Integer.valueOf(i), reverse.next());
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Integer.valueOf(i), deque.poll());
+        }
+        assertNull(deque.peek());
+
+        int total = 100000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < total; i++) {
+                while (!deque.offer(i)) {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+        for (int i = 0; i < total; i++) {
+            Integer element;
+            while ((element = deque.poll()) == null) {
+                Thread.yield();
+            }
+            assertEquals(Integer.valueOf(i), element);
+        }
+        producer.join();
+        assertTrue(deque.isEmpty());
+    }
+
+    @Test(timeout = 20000)
+    public void stripedDequeStealsAcrossStripes() throws InterruptedException {
+        StripedDeque<Integer> deque = new StripedDeque<>(4);
+        assertEquals(4, deque.stripeCount());
+        int threads = 4;
+        int perThread = 5000;
+        Thread[] producers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            producers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    deque.pushRight(base + i);
+                }
+            });
+            producers[t].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertEquals(threads * perThread, deque.size());
+
+        // A single consumer has to steal from every other stripe
+        boolean[] seen = new boolean[threads * perThread];
+        while (!deque.isEmpty()) {
+            int value = deque.popLeft();
+            assertFalse(seen[value]);
+            seen[value] = true;
+        }
+        for (boolean b : seen) {
+            assertTrue(b);
+        }
+        try {
+            deque.popRight();
+            fail();
+        } catch (NoSuchElementException e) {
+            assertEquals(0, deque.size());
+        }
+    }
+
+    @Test
+    public void instrumentedDequeCountsOperations() throws Exception {
+        InstrumentedDeque<Integer> deque =
+                new InstrumentedDeque<>(new SimpleArrayDeque<>(), true);
+        for (int i = 0; i < 40; i++) {
+            deque.pushRight(i);
+        }
+        deque.pushLeft(-1);
+        assertEquals(Integer.valueOf(-1), deque.peekLeft());
+        assertEquals(Integer.valueOf(-1), deque.popLeft());
+        assertEquals(Integer.valueOf(39), deque.popRight());
+
+        InstrumentedDeque.Snapshot stats = deque.snapshot();
+        assertEquals(40, stats.pushRightCount);
+        assertEquals(1, stats.pushLeftCount);
+        assertEquals(1, stats.peekLeftCount);
+        assertEquals(1, stats.popLeftCount);
+        assertEquals(1, stats.popRightCount);
+        assertEquals(41, stats.highWaterMark);
+        assertEquals(39, stats.size);
+        // 16 -> 32 -> 64
+        assertEquals(2, stats.resizeCount);
+        assertEquals(41, Arrays.stream(stats.getPushLatencyHistogram()).sum());
+        stats.getPushLatencyHistogram()[0] = -1;
+        assertEquals(41, Arrays.stream(stats.getPushLatencyHistogram()).sum());
+
+        InstrumentedDeque<Integer> bounded = new InstrumentedDeque<>(new SimpleArrayDeque<>(1));
+        bounded.pushRight(1);
+        try {
+            bounded.pushLeft(2);
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals(1, bounded.getFullRejectionCount());
+        }
+        bounded.popLeft();
+        try {
+            bounded.peekRight();
+            fail();
+        } catch (NoSuchElementException e) {
+            assertEquals(1, bounded.getEmptyRejectionCount());
+        }
+
+        ObjectName name = deque.register("instrumentedDequeCountsOperations");
+        try {
+            assertEquals(39, ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(name, "Size"));
+        } finally {
+            deque.unregister();
+        }
+        deque.reset();
+        assertEquals(0, deque.getPushRightCount());
+        assertEquals(39, deque.getHighWaterMark());
+    }
+
+    @Test
+    public void instrumentedDequeCountsAutoShrinks() {
+        SimpleArrayDeque<Integer> data = new SimpleArrayDeque<>();
+        data.setAutoShrink(16);
+        InstrumentedDeque<Integer> deque = new InstrumentedDeque<>(data);
+        for (int i = 0; i < 64; i++) {
+            deque.pushRight(i);
+        }
+        // 16 -> 32 -> 64
+        assertEquals(2, deque.getResizeCount());
+        int allocated = data.allocatedCapacity();
+        while (deque.size() > 1) {
+            deque.popLeft();
+            deque.popRight();
+        }
+        assertTrue(data.allocatedCapacity() < allocated);
+        assertTrue(deque.getResizeCount() > 2);
+    }
+
+    @Test
+    public void arrayDequeIndexedAccessAndSearch() {
+        SimpleArrayDeque<Integer> deque = new SimpleArrayDeque<>(8);
+        for (int i = 0; i < 6; i++) {
+            deque.pushRight(i * 10);
+        }
+        // Wrap the ring so the elements straddle the end of the array
+        deque.popLeft();
+        deque.popLeft();
+        deque.pushRight(60);
+        deque.pushRight(70);
+        deque.pushRight(80);
+        deque.pushLeft(10);
+        assertEquals(Integer.valueOf(10), deque.get(0));
+        assertEquals(Integer.valueOf(80), deque.get(deque.size() - 1));
+        assertEquals(Integer.valueOf(40), deque.set(3, 45));
+        assertEquals(Integer.valueOf(45), deque.get(3));
+
+        assertEquals(3, deque.binarySearch(45, null));
+        assertEquals(-1, deque.binarySearch(5, null));
+        assertEquals(-5, deque.binarySearch(47, Integer::compare));
+        assertEquals(-(deque.size() + 1), deque.binarySearch(99, null));
+        try {
+            deque.get(deque.size());
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            assertEquals(Integer.valueOf(10), deque.peekLeft());
+        }
+    }
+
+    @Test
+    public void linkedDequePositionalAccess() {
+        SimpleLinkedDeque<Integer> deque = new SimpleLinkedDeque<>();
+        for (int i = 0; i < 100; i++) {
+            deque.pushRight(i);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), deque.get(i));
+        }
+        // The finger has to follow elements as the left end moves
+        deque.get(50);
+        deque.pushLeft(-1);
+        deque.pushAllLeft(new Integer[] {-3, -2});
+        assertEquals(Integer.valueOf(50), deque.get(53));
+        deque.popLeft();
+        assertEquals(Integer.valueOf(51), deque.get(53));
+        assertEquals(Integer.valueOf(51), deque.set(53, 510));
+
+        // A finger on a popped Link must not be reused
+        deque.get(deque.size() - 1);
+        deque.popRight();
+        deque.pushRight(1000);
+        assertEquals(Integer.valueOf(1000), deque.get(deque.size() - 1));
+        assertEquals(Integer.valueOf(510), deque.get(53));
+
+        Integer[] dest = new Integer[10];
+        deque.popLeft(10, dest);
+        assertEquals(Integer.valueOf(510), deque.get(43));
+        try {
+            deque.set(-1, 0);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            assertEquals(92, deque.size());
+        }
+    }
+
+    @Test
+    public void linkedDequeCheckpointIndexFollowsBothEnds() {
+        SimpleLinkedDeque<Integer> deque = new SimpleLinkedDeque<>();
+        SimpleArrayDeque<Integer> expected = new SimpleArrayDeque<>();
+        Random random = new Random(18);
+        for (int i = 0; i < 1000; i++) {
+            deque.pushRight(i);
+            expected.pushRight(i);
+        }
+        for (int round = 0; round < 2000; round++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    deque.pushLeft(-round);
+                    expected.pushLeft(-round);
+                    break;
+                case 1:
+                    deque.pushRight(round);
+                    expected.pushRight(round);
+                    break;
+                case 2:
+                    assertEquals(expected.popLeft(), deque.popLeft());
+                    break;
+                default:
+                    assertEquals(expected.popRight(), deque.popRight());
+                    break;
+            }
+            int index = random.nextInt(deque.size());
+            assertEquals(expected.get(index), deque.get(index));
+            if (round % 7 == 0) {
+                deque.set(index, round);
+                expected.set(index, round);
+            }
+        }
+        Iterator<Integer> it = deque.iterator();
+        Iterator<Integer> expectedIt = expected.iterator();
+        while (expectedIt.hasNext()) {
+            assertEquals(expectedIt.next(), it.next());
+        }
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void persistentDequeVersionsAreIndependent() {
+        PersistentDeque<Integer> empty = PersistentDeque.empty();
+        PersistentDeque<Integer> v1 = empty.pushLeft(2).pushLeft(1).pushRight(3);
+        PersistentDeque<Integer> v2 = v1.popLeft().pushRight(4);
+        assertTrue(empty.isEmpty());
+        assertEquals(3, v1.size());
+        assertEquals(Integer.valueOf(1), v1.peekLeft());
+        assertEquals(Integer.valueOf(3), v1.peekRight());
+        assertEquals(Integer.valueOf(2), v2.peekLeft());
+        assertEquals(Integer.valueOf(4), v2.peekRight());
+
+        // Draining one version from the right leaves the other intact
+        PersistentDeque<Integer> drained = v2;
+        for (int expected = 4; expected >= 2; expected--) {
+            assertEquals(Integer.valueOf(expected), drained.peekRight());
+            drained = drained.popRight();
+        }
+        assertTrue(drained.isEmpty());
+        Iterator<Integer> it = v2.iterator();
+        for (int expected = 2; expected <= 4; expected++) {
+            assertEquals(Integer.valueOf(expected), it.next());
+        }
+        assertFalse(it.hasNext());
+
+        SimpleArrayDeque<Integer> source = new SimpleArrayDeque<>();
+        for (int i = 0; i < 1000; i++) {
+            source.pushRight(i);
+        }
+        PersistentDeque<Integer> copy = PersistentDeque.of(source);
+        Iterator<Integer> reverse = copy.reverseIterator();
+        for (int i = 999; i >= 0; i--) {
+            assertEquals(Integer.valueOf(i), reverse.next());
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Integer.valueOf(i), copy.peekLeft());
+            copy = copy.popLeft();
+        }
+        try {
+            copy.popRight();
+            fail();
+        } catch (NoSuchElementException e) {
+            assertEquals(1000, source.size());
+        }
+    }
+
+    @Test
+    public void persistentDequeIteratesUnevenLists() {
+        // Sizes either side of a perfect square, built from both ends so that
+        // front and rear differ in length
+        for (int n = 0; n < 40; n++) {
+            PersistentDeque<Integer> deque = PersistentDeque.empty();
+            for (int i = 0; i < n; i++) {
+                deque = i % 3 == 0 ? deque.pushLeft(-i) : deque.pushRight(i);
+            }
+            Integer[] expected = new Integer[n];
+            int k = 0;
+            for (int i = n - 1; i >= 0; i--) {
+                if (i % 3 == 0) {
+                    expected[k++] = -i;
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                if (i % 3 != 0) {
+                    expected[k++] = i;
+                }
+            }
+            Iterator<Integer> it = deque.iterator();
+            Iterator<Integer> reverse = deque.reverseIterator();
+            for (int i = 0; i < n; i++) {
+                assertEquals(expected[i], it.next());
+                assertEquals(expected[n - 1 - i], reverse.next());
+            }
+            assertFalse(it.hasNext());
+            assertFalse(reverse.hasNext());
+        }
+    }
+
+    @Test
+    public void serializerRoundTripsDeques() throws IOException {
+        SimpleArrayDeque<String> strings = new SimpleArrayDeque<>();
+        strings.pushRight("plain");
+        strings.pushRight("");
+        strings.pushRight("caf\u00e9 \ud83d\ude00 \ud800");
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            big.append((char) ('a' + i % 26));
+        }
+        strings.pushLeft(big.toString());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DequeSerializer.write(strings, DequeSerializer.STRING, Channels.newChannel(bytes));
+        SimpleLinkedDeque<String> restored = new SimpleLinkedDeque<>();
+        assertEquals(4, DequeSerializer.read(Channels.newChannel(
+                new ByteArrayInputStream(bytes.toByteArray())), DequeSerializer.STRING, restored));
+        assertEquals(big.toString(), restored.popLeft());
+        assertEquals("plain", restored.popLeft());
+        assertEquals("", restored.popLeft());
+        assertEquals("caf\u00e9 \ud83d\ude00 ?", restored.popLeft());
+
+        IntArrayDeque ints = new IntArrayDeque();
+        for (int i = -50000; i < 50000; i++) {
+            ints.pushRight(i);
+        }
+        bytes.reset();
+        DequeSerializer.write(ints, Channels.newChannel(bytes));
+        assertEquals(9 + 4 * 100000, bytes.size());
+        IntArrayDeque restoredInts = new IntArrayDeque();
+        DequeSerializer.read(Channels.newChannel(
+                new ByteArrayInputStream(bytes.toByteArray())), restoredInts);
+        for (int i = -50000; i < 50000; i++) {
+            assertEquals(i, restoredInts.popLeft());
+        }
+
+        // An int stream is not an object stream
+        try {
+            DequeSerializer.read(Channels.newChannel(new ByteArrayInputStream(
+                    bytes.toByteArray())), DequeSerializer.INTEGER, new SimpleArrayDeque<>());
+            fail();
+        } catch (StreamCorruptedException e) {
+            assertTrue(restoredInts.isEmpty());
+        }
+    }
+
+    @Test
+    public void serializerRoundTripsLongsAndRejectsOversizedElements() throws IOException {
+        LongArrayDeque longs = new LongArrayDeque();
+        for (long i = -20000; i < 20000; i++) {
+            longs.pushRight(i * 1_000_000_007L);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DequeSerializer.write(longs, Channels.newChannel(bytes));
+        assertEquals(9 + 8 * 40000, bytes.size());
+        LongArrayDeque restoredLongs = new LongArrayDeque();
+        assertEquals(40000, DequeSerializer.read(Channels.newChannel(
+                new ByteArrayInputStream(bytes.toByteArray())), restoredLongs));
+        for (long i = -20000; i < 20000; i++) {
+            assertEquals(i * 1_000_000_007L, restoredLongs.popLeft());
+        }
+
+        SimpleArrayDeque<String> strings = new SimpleArrayDeque<>();
+        strings.pushRight("short");
+        strings.pushRight("a little longer");
+        bytes.reset();
+        DequeSerializer.write(strings, DequeSerializer.STRING, Channels.newChannel(bytes));
+        SimpleArrayDeque<String> restored = new SimpleArrayDeque<>();
+        try {
+            DequeSerializer.read(Channels.newChannel(new ByteArrayInputStream(
+                    bytes.toByteArray())), DequeSerializer.STRING, restored, 10);
+            fail();
+        } catch (StreamCorruptedException e) {
+            assertEquals("short", restored.popLeft());
+        }
+
+        // A corrupted length prefix must not be allocated
+        byte[] corrupted = bytes.toByteArray();
+        ByteBuffer.wrap(corrupted).putInt(9, Integer.MAX_VALUE - 8);
+        try {
+            DequeSerializer.read(Channels.newChannel(new ByteArrayInputStream(corrupted)),
+                    DequeSerializer.STRING, restored);
+            fail();
+        } catch (StreamCorruptedException e) {
+            assertTrue(restored.isEmpty());
+        }
+    }
+
+    @Test
+    public void serializerRejectsForeignStreamsAndOversizedWrites() throws IOException {
+        // A MappedRecordDeque file starts with its own magic, not a serialized deque
+        Path file = Files.createTempFile("deque", ".bin");
+        try {
+            try (MappedRecordDeque deque = new MappedRecordDeque(file, 8, 4)) {
+                deque.pushRight(ByteBuffer.allocate(8).putLong(0, 7L));
+            }
+            try (FileChannel channel = FileChannel.open(file)) {
+                DequeSerializer.read(channel, DequeSerializer.LONG, new SimpleArrayDeque<>());
+                fail();
+            } catch (StreamCorruptedException expected) {
+            }
+        } finally {
+            Files.delete(file);
+        }
+
+        SimpleArrayDeque<String> strings = new SimpleArrayDeque<>();
+        strings.pushRight("short");
+        strings.pushRight("a little longer");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            DequeSerializer.write(strings, DequeSerializer.STRING, Channels.newChannel(bytes), 10);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        // Only the header and the first record were written
+        assertEquals(9 + 4 + 5, bytes.size());
+        assertEquals(2, strings.size());
+    }
+
+    @Test
+    public void slidingWindowsMatchRescans() {
+        int window = 7;
+        SlidingWindowMinMax<Integer> minMax =
+                SlidingWindowMinMax.countWindow(window, Integer::compare);
+        SlidingWindowAggregate<Integer> sum = SlidingWindowAggregate.countWindow(window, Integer::sum);
+        // Concatenation is associative but not commutative
+        SlidingWindowAggregate<String> concat =
+                SlidingWindowAggregate.countWindow(window, String::concat);
+        Random random = new Random(21);
+        int[] values = new int[500];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(100);
+            minMax.add(values[i]);
+            sum.add(values[i]);
+            concat.add(Integer.toString(values[i] % 10));
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            int total = 0;
+            StringBuilder digits = new StringBuilder();
+            for (int j = Math.max(0, i - window + 1); j <= i; j++) {
+                min = Math.min(min, values[j]);
+                max = Math.max(max, values[j]);
+                total += values[j];
+                digits.append(values[j] % 10);
+            }
+            assertEquals(Integer.valueOf(min), minMax.min());
+            assertEquals(Integer.valueOf(max), minMax.max());
+            assertEquals(Integer.valueOf(total), sum.aggregate());
+            assertEquals(digits.toString(), concat.aggregate());
+        }
+
+        SlidingWindowMinMax<Integer> timed = SlidingWindowMinMax.timeWindow(10, Integer::compare);
+        SlidingWindowAggregate<Integer> timedSum = SlidingWindowAggregate.timeWindow(10, Integer::sum);
+        timed.add(0, 5);
+        timedSum.add(0, 5);
+        timed.add(4, 9);
+        timedSum.add(4, 9);
+        timed.add(9, 1);
+        timedSum.add(9, 1);
+        assertEquals(Integer.valueOf(1), timed.min());
+        assertEquals(Integer.valueOf(15), timedSum.aggregate());
+        timed.advanceTo(12);
+        timedSum.advanceTo(12);
+        assertEquals(Integer.valueOf(9), timed.max());
+        assertEquals(Integer.valueOf(10), timedSum.aggregate());
+        timed.advanceTo(30);
+        timedSum.advanceTo(30);
+        assertTrue(timed.isEmpty());
+        assertEquals(0, timedSum.size());
+        try {
+            timedSum.add(29, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(timedSum.isEmpty());
+        }
+    }
+
+    @Test
+    public void overwriteModeKeepsLatestElements() {
+        SimpleArrayDeque<Integer> log = new SimpleArrayDeque<>(3);
+        log.setOverwriteWhenFull(true);
+        SimpleArrayDeque<Integer> evicted = new SimpleArrayDeque<>();
+        log.setEvictionListener(evicted::pushRight);
+        for (int i = 0; i < 5; i++) {
+            log.pushRight(i);
+        }
+        assertEquals(3, log.size());
+        assertEquals(Integer.valueOf(2), log.peekLeft());
+        assertEquals(Integer.valueOf(4), log.peekRight());
+        assertEquals(2, log.getEvictionCount());
+        assertEquals(Integer.valueOf(0), evicted.popLeft());
+        assertEquals(Integer.valueOf(1), evicted.popLeft());
+
+        // Pushing on the left evicts from the right
+        log.pushLeft(9);
+        assertEquals(Integer.valueOf(9), log.peekLeft());
+        assertEquals(Integer.valueOf(3), log.peekRight());
+        assertEquals(Integer.valueOf(4), evicted.popLeft());
+
+        log.setOverwriteWhenFull(false);
+        try {
+            log.pushRight(10);
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals(3, log.getEvictionCount());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void asyncDequeDoesNotStoreTimedOutPushes() throws Exception {
+        AsyncDeque<Integer> deque = new AsyncDeque<>(new SimpleArrayDeque<>(1));
+        assertTrue(deque.pushRightAsync(1).isDone());
+        CompletableFuture<Void> timedOut = deque.pushRightAsync(2)
+                .orTimeout(50, TimeUnit.MILLISECONDS);
+        try {
+            timedOut.join();
+            fail();
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        CompletableFuture<Void> waiting = deque.pushLeftAsync(3);
+        assertEquals(Integer.valueOf(1), deque.popLeftAsync().get());
+        // The timed-out 2 must not take the freed room, the live 3 does
+        assertTrue(waiting.isDone());
+        assertEquals(1, deque.size());
+        assertEquals(Integer.valueOf(3), deque.popRightAsync().get());
+        assertEquals(0, deque.size());
+    }
+
+    @Test
+    public void asyncDequeSweepsCancelledWaitersInOrder() throws Exception {
+        AsyncDeque<Integer> deque = new AsyncDeque<>(new SimpleArrayDeque<>(1));
+        SimpleArrayDeque<CompletableFuture<Integer>> live = new SimpleArrayDeque<>();
+        // Enough abandoned pops to trigger several sweeps, with a live one every 100
+        for (int i = 0; i < 1000; i++) {
+            CompletableFuture<Integer> pop = deque.popLeftAsync();
+            if (i % 100 == 0) {
+                live.pushRight(pop);
+            } else {
+                pop.cancel(false);
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            assertTrue(deque.pushRightAsync(i).isDone());
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Integer.valueOf(i), live.popLeft().get());
+        }
+        assertEquals(0, deque.size());
+
+        assertTrue(deque.pushRightAsync(-1).isDone());
+        SimpleArrayDeque<CompletableFuture<Void>> pushes = new SimpleArrayDeque<>();
+        for (int i = 0; i < 100; i++) {
+            CompletableFuture<Void> push = deque.pushRightAsync(i);
+            if (i % 10 == 0) {
+                pushes.pushRight(push);
+            } else {
+                push.cancel(false);
+            }
+        }
+        assertEquals(Integer.valueOf(-1), deque.popLeftAsync().get());
+        for (int i = 0; i < 100; i += 10) {
+            assertTrue(pushes.popLeft().isDone());
+            assertEquals(Integer.valueOf(i), deque.popLeftAsync().get());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void asyncDequeHandsOffAndAppliesBackpressure() throws Exception {
+        AsyncDeque<Integer> deque = new AsyncDeque<>(new SimpleArrayDeque<>(1));
+        CompletableFuture<Integer> pop = deque.popLeftAsync();
+        assertFalse(pop.isDone());
+        assertTrue(deque.pushRightAsync(1).isDone());
+        assertEquals(Integer.valueOf(1), pop.get());
+        assertEquals(0, deque.size());
+
+        assertTrue(deque.pushRightAsync(2).isDone());
+        CompletableFuture<Void> blocked = deque.pushRightAsync(3);
+        assertFalse(blocked.isDone());
+        assertEquals(Integer.valueOf(2), deque.popRightAsync().get());
+        assertTrue(blocked.isDone());
+        assertEquals(Integer.valueOf(3), deque.popLeftAsync().get());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SimpleArrayDeque<Integer> received = new SimpleArrayDeque<>();
+            CountDownLatch done = new CountDownLatch(5);
+            deque.publisher(executor).subscribe(new Flow.Subscriber<Integer>() {
+                private Flow.Subscription subscription;
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    this.subscription = subscription;
+                    subscription.request(2);
+                }
+
+                @Override
+                public void onNext(Integer item) {
+                    received.pushRight(item);
+                    done.countDown();
+                    if (received.size() == 2) {
+                        subscription.request(3);
+                    }
+                    if (received.size() == 5) {
+                        subscription.cancel();
+                    }
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    fail();
+                }
+
+                @Override
+                public void onComplete() {
+                    fail();
+                }
+            });
+            for (int i = 0; i < 6; i++) {
+                deque.pushRightAsync(i).get();
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 5; i++) {
+                assertEquals(Integer.valueOf(i), received.popLeft());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void arrayDequeShrinksAfterBurst() {
+        SimpleArrayDeque<Integer> deque = new SimpleArrayDeque<>();
+        deque.setAutoShrink(32);
+        for (int i = 0; i < 4096; i++) {
+            deque.pushRight(i);
+        }
+        assertEquals(4096, deque.allocatedCapacity());
+        while (deque.size() > 1023) {
+            deque.popLeft();
+        }
+        // Less than a quarter full: compacted to twice the size
+        assertEquals(2048, deque.allocatedCapacity());
+        // Hovering around the threshold does not resize again
+        deque.pushRight(-1);
+        deque.popRight();
+        assertEquals(2048, deque.allocatedCapacity());
+
+        Integer[] dest = new Integer[1020];
+        deque.popLeft(1020, dest);
+        assertEquals(Integer.valueOf(4093), deque.peekLeft());
+        assertEquals(32, deque.allocatedCapacity());
+        while (!deque.isEmpty()) {
+            deque.popRight();
+        }
+        assertEquals(32, deque.allocatedCapacity());
+
+        SimpleArrayDeque<Integer> trimmed = new SimpleArrayDeque<>();
+        for (int i = 0; i < 1000; i++) {
+            trimmed.pushLeft(i);
+        }
+        for (int i = 0; i < 900; i++) {
+            trimmed.popRight();
+        }
+        assertEquals(1024, trimmed.allocatedCapacity());
+        trimmed.trimToSize();
+        assertEquals(128, trimmed.allocatedCapacity());
+        assertEquals(Integer.valueOf(999), trimmed.peekLeft());
+        assertEquals(Integer.valueOf(900), trimmed.peekRight());
+    }
+
+    @Test
+    public void dequeCacheEvictsByPolicy() {
+        DequeCache<Integer, String> lru = new DequeCache<>(3, DequeCache.Policy.LRU);
+        lru.put(1, "a");
+        lru.put(2, "b");
+        lru.put(3, "c");
+        assertEquals("a", lru.get(1));
+        lru.put(4, "d");
+        // 2 was least recently used
+        assertNull(lru.get(2));
+        assertEquals("a", lru.get(1));
+        assertEquals(3, lru.size());
+        assertEquals(2, lru.getHitCount());
+        assertEquals(1, lru.getMissCount());
+        assertEquals(1, lru.getEvictionCount());
+        assertEquals("c", lru.remove(3));
+        assertEquals(2, lru.size());
+
+        // A scan of one-off keys does not flush entries that were reused
+        DequeCache<Integer, Integer> slru = new DequeCache<>(10, DequeCache.Policy.SLRU);
+        DequeCache<Integer, Integer> tinyLfu = new DequeCache<>(100, DequeCache.Policy.W_TINY_LFU, 2);
+        for (int round = 0; round < 5; round++) {
+            for (int key = 0; key < 5; key++) {
+                slru.computeIfAbsent(key, k -> k);
+                tinyLfu.computeIfAbsent(key, k -> k);
+            }
+        }
+        for (int key = 1000; key < 2000; key++) {
+            slru.put(key, key);
+            tinyLfu.put(key, key);
+        }
+        for (int key = 0; key < 5; key++) {
+            assertEquals(Integer.valueOf(key), slru.get(key));
+            assertEquals(Integer.valueOf(key), tinyLfu.get(key));
+        }
+        assertTrue(tinyLfu.size() <= tinyLfu.capacity());
+    }
+
+    @Test
+    public void linkedDequeUnlinksAndMovesByLink() {
+        SimpleLinkedDeque<Integer> deque = new SimpleLinkedDeque<>();
+        SimpleArrayDeque<SimpleLinkedDeque.Link<Integer>> links = new SimpleArrayDeque<>();
+        for (int i = 0; i < 100; i++) {
+            links.pushLeft(deque.pushLeftLink(i));
+        }
+        // Build the positional index before changing the middle
+        assertEquals(Integer.valueOf(50), deque.get(49));
+        // links.get(j) holds element 99 - j
+        deque.unlink(links.get(50));
+        deque.moveToLeft(links.get(10));
+        deque.moveToLeft(links.get(99));
+        deque.unlink(links.get(0));
+        deque.unlink(links.get(98));
+        Integer[] expected = new Integer[97];
+        int k = 0;
+        expected[k++] = 0;
+        expected[k++] = 89;
+        for (int i = 98; i >= 2; i--) {
+            if (i != 49 && i != 89) {
+                expected[k++] = i;
+            }
+        }
+        assertEquals(expected.length, deque.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], deque.get(i));
+        }
+        assertEquals(Integer.valueOf(2), deque.popRight());
+        assertEquals(Integer.valueOf(0), deque.popLeft());
+    }
+
+    @Test
+    public void dequeCacheWithNoMainSpaceRejectsFromWindow() {
+        DequeCache<Integer, Integer> cache = new DequeCache<>(1, DequeCache.Policy.W_TINY_LFU);
+        cache.put(1, 1);
+        cache.put(2, 2);
+        assertEquals(1, cache.size());
+        assertEquals(Integer.valueOf(2), cache.get(2));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void dequeCacheCountsPutsAsUses() {
+        DequeCache<Integer, Integer> cache = new DequeCache<>(100, DequeCache.Policy.W_TINY_LFU);
+        for (int key = 0; key < 100; key++) {
+            cache.put(key, key);
+        }
+        // Written three times but never read, so only the puts make it popular
+        for (int i = 0; i < 3; i++) {
+            cache.put(-1, i);
+        }
+        // Pushes -1 out of the window, past the main space's once-written victim
+        cache.put(1000, 1000);
+        assertEquals(Integer.valueOf(2), cache.get(-1));
+        assertEquals(100, cache.size());
+    }
+}
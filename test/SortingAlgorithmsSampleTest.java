@@ -2,6 +2,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -140,4 +141,54 @@ public class SortingAlgorithmsSampleTest {
 
         assertArrayEquals(sortedAscending, toSort);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testParallelQuickSortLarge() {
+        Random rand = new Random(3506);
+        Integer[] toSort = new Integer[100000];
+        for (int i = 0; i < toSort.length; i++) {
+            toSort[i] = rand.nextInt(1000);
+        }
+        Integer[] expected = Arrays.copyOf(toSort, toSort.length);
+        Arrays.sort(expected);
+
+        SortingAlgorithms.parallelQuickSort(toSort, false, 4);
+        assertArrayEquals(expected, toSort);
+    }
+
+    @Test(timeout = 10000)
+    public void testParallelQuickSortNullElementThrows() {
+        Random rand = new Random(3506);
+        // A null near either end is reached by the calling thread or a helper
+        for (int position : new int[] {0, 50000, 99999}) {
+            Integer[] toSort = new Integer[100000];
+            for (int i = 0; i < toSort.length; i++) {
+                toSort[i] = rand.nextInt(1000);
+            }
+            toSort[position] = null;
+            try {
+                SortingAlgorithms.parallelQuickSort(toSort, false, 4);
+                fail();
+            } catch (NullPointerException e) {
+                assertEquals(100000, toSort.length);
+            }
+        }
+    }
+
+    @Test
+    public void testCachedSortResults() {
+        DequeCache<String, Integer[]> cache = new DequeCache<>(4, DequeCache.Policy.SLRU);
+        int[] sorts = new int[1];
+        for (int i = 0; i < 3; i++) {
+            Integer[] result = cache.computeIfAbsent("unsorted", key -> {
+                sorts[0]++;
+                Integer[] copy = Arrays.copyOf(unsorted, unsorted.length);
+                SortingAlgorithms.mergeSort(copy, false);
+                return copy;
+            });
+            assertArrayEquals(sorted, result);
+        }
+        assertEquals(1, sorts[0]);
+        assertEquals(2, cache.getHitCount());
+    }
+}